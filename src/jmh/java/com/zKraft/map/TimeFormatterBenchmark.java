@@ -0,0 +1,74 @@
+package com.zKraft.map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Confronta {@link TimeFormatter} con la vecchia versione basata su {@link String#format}.
+ * Il tempo avanza di mezzo millisecondo a chiamata, come un placeholder live letto più volte per tick.
+ * Con il profiler {@code gc} (attivo in build.gradle) {@code formatTo} deve riportare 0 byte allocati per operazione.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TimeFormatterBenchmark {
+
+    private static final long STEP_NANOS = 500_000L;
+
+    private long nanos;
+    private TimeFormatter.Cache cache;
+    private StringBuilder builder;
+
+    @Setup
+    public void setup() {
+        nanos = 83_456_000_000L;
+        cache = new TimeFormatter.Cache();
+        builder = new StringBuilder(16);
+    }
+
+    @Benchmark
+    public String stringFormat() {
+        nanos += STEP_NANOS;
+        return legacyFormat(nanos);
+    }
+
+    @Benchmark
+    public String direct() {
+        nanos += STEP_NANOS;
+        return TimeFormatter.format(nanos);
+    }
+
+    @Benchmark
+    public StringBuilder formatTo() {
+        nanos += STEP_NANOS;
+        builder.setLength(0);
+        return TimeFormatter.formatTo(builder, nanos);
+    }
+
+    @Benchmark
+    public String cached() {
+        nanos += STEP_NANOS;
+        return cache.format(nanos);
+    }
+
+    // Implementazione precedente, tenuta qui come riferimento.
+    private static String legacyFormat(long nanos) {
+        if (nanos <= 0L) {
+            return "00:00.000";
+        }
+
+        long totalMillis = nanos / 1_000_000L;
+        long minutes = totalMillis / 60_000L;
+        long seconds = (totalMillis % 60_000L) / 1_000L;
+        long millis = totalMillis % 1_000L;
+        return String.format(Locale.ROOT, "%02d:%02d.%03d", minutes, seconds, millis);
+    }
+}
@@ -16,6 +16,7 @@ public final class ConfigDefaults {
         FileConfiguration config = plugin.getConfig();
         applyGeneralDefaults(config);
         applyPersistenceDefaults(config);
+        applyPlaceholderDefaults(config);
         config.options().copyDefaults(true);
         plugin.saveConfig();
     }
@@ -28,15 +29,47 @@ public final class ConfigDefaults {
         config.addDefault("endChatMessage", "&aHai completato il percorso in {time}.");
         config.addDefault("leaveSuccessMessage", "Hai interrotto correttamente la corsa.");
         config.addDefault("leaveNoActiveMessage", "Non ci sono corse attive da interrompere.");
+        config.addDefault("detection.mode", "polling");
+        config.addDefault("detection.sweep-interval-ticks", 20);
+        config.addDefault("detection.adaptive.enabled", false);
+        config.addDefault("detection.adaptive.max-speed", 5.0D);
+        config.addDefault("detection.adaptive.max-skip-ticks", 40);
+        config.addDefault("timing.clock", "wall");
+        config.addDefault("timing.sub-tick", true);
     }
 
     private static void applyPersistenceDefaults(FileConfiguration config) {
         config.addDefault("persistence.use-mysql", false);
+        config.addDefault("persistence.storage", "yaml");
+        config.addDefault("persistence.yaml.save-mode", "sync");
+        config.addDefault("persistence.yaml.journal.sync-interval-ms", 200);
+        config.addDefault("persistence.yaml.journal.compact-after", 5000);
+        config.addDefault("persistence.cache.max-maps", 32);
+        config.addDefault("persistence.cache.expire-after-ms", 0);
+        config.addDefault("persistence.sqlite.file", "stats.db");
+        config.addDefault("persistence.sqlite.write-behind.flush-interval-ms", 500);
+        config.addDefault("persistence.sqlite.write-behind.max-pending", 256);
         config.addDefault("persistence.mysql.host", "localhost");
         config.addDefault("persistence.mysql.port", 3306);
         config.addDefault("persistence.mysql.database", "zcrono");
         config.addDefault("persistence.mysql.username", "zcrono");
         config.addDefault("persistence.mysql.password", "changeme");
         config.addDefault("persistence.mysql.use-ssl", true);
+        config.addDefault("persistence.mysql.pool.minimum-idle", 2);
+        config.addDefault("persistence.mysql.pool.maximum-size", 6);
+        config.addDefault("persistence.mysql.pool.connection-timeout-ms", 5000);
+        config.addDefault("persistence.mysql.pool.validation-timeout-ms", 3000);
+        config.addDefault("persistence.mysql.pool.max-lifetime-ms", 1800000);
+        config.addDefault("persistence.mysql.pool.leak-detection-ms", 0);
+        config.addDefault("persistence.mysql.statement-cache.size", 250);
+        config.addDefault("persistence.mysql.statement-cache.sql-limit", 2048);
+        config.addDefault("persistence.mysql.write-behind.flush-interval-ms", 500);
+        config.addDefault("persistence.mysql.write-behind.max-pending", 256);
+    }
+
+    private static void applyPlaceholderDefaults(FileConfiguration config) {
+        config.addDefault("placeholders.top-size", 10);
+        config.addDefault("placeholders.refresh-interval-ticks", 20);
+        config.addDefault("placeholders.max-age-seconds", 60);
     }
 }
@@ -0,0 +1,42 @@
+package com.zKraft.map;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Variante asincrona di {@link StatsStorage}: le operazioni non bloccano il thread chiamante.
+ */
+public interface AsyncStatsStorage {
+
+    /**
+     * Registra il tempo; il future vale {@code true} se è il nuovo miglior tempo del giocatore sulla mappa.
+     */
+    CompletableFuture<Boolean> recordRun(String mapName, UUID playerId, String playerName, long nanos);
+
+    CompletableFuture<Boolean> resetPlayer(String mapName, UUID playerId);
+
+    CompletableFuture<Boolean> resetMap(String mapName);
+
+    CompletableFuture<OptionalLong> getBestTime(String mapName, UUID playerId);
+
+    CompletableFuture<OptionalInt> getRank(String mapName, UUID playerId);
+
+    CompletableFuture<Optional<StatsManager.LeaderboardEntry>> getTopEntry(String mapName, int position);
+
+    CompletableFuture<List<StatsManager.LeaderboardEntry>> getEntries(String mapName);
+
+    CompletableFuture<List<StatsManager.LeaderboardEntry>> getTopEntries(String mapName, int limit);
+
+    CompletableFuture<Void> saveOngoingRun(String mapName, UUID playerId, String playerName, long nanos);
+
+    CompletableFuture<List<StatsManager.OngoingRun>> getAllOngoingRuns();
+
+    /**
+     * Attende le operazioni già accodate e libera le risorse.
+     */
+    void close();
+}
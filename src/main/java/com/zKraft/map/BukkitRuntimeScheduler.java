@@ -0,0 +1,47 @@
+package com.zKraft.map;
+
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Scheduler classico di Bukkit/Paper: tutti i task girano sul thread principale.
+ */
+public final class BukkitRuntimeScheduler implements RuntimeScheduler {
+
+    private final JavaPlugin plugin;
+
+    public BukkitRuntimeScheduler(JavaPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return false;
+    }
+
+    @Override
+    public Task runTimer(Runnable task, long delayTicks, long periodTicks) {
+        BukkitTask scheduled = plugin.getServer().getScheduler().runTaskTimer(plugin, task, delayTicks, periodTicks);
+        return scheduled::cancel;
+    }
+
+    @Override
+    public Task runTimer(Player player, Runnable task, long delayTicks, long periodTicks) {
+        return runTimer(task, delayTicks, periodTicks);
+    }
+
+    @Override
+    public void runFor(Player player, Runnable task) {
+        runGlobal(task);
+    }
+
+    @Override
+    public void runGlobal(Runnable task) {
+        if (plugin.getServer().isPrimaryThread()) {
+            task.run();
+            return;
+        }
+        plugin.getServer().getScheduler().runTask(plugin, task);
+    }
+}
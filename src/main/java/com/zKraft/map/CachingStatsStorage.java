@@ -0,0 +1,386 @@
+package com.zKraft.map;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Cache in lettura davanti a uno storage remoto: per ogni mappa tiene in memoria la classifica ordinata
+ * e i nomi dei giocatori, caricati alla prima lettura e aggiornati dalle scritture fatte attraverso questa classe.
+ * Le mappe in cache sono limitate e viene scartata quella letta meno di recente.
+ * Le classifiche vengono lette dallo storage su un thread dedicato: nel frattempo resta in uso quella vecchia
+ * e i metodi {@code getCached...} rispondono subito, senza aspettare il database.
+ * Con {@code expireAfterMillis} maggiore di 0 le classifiche vengono rilette dopo quel tempo, per vedere
+ * anche i tempi scritti da altri server sullo stesso database.
+ */
+public class CachingStatsStorage implements StatsStorage {
+
+    private final StatsStorage delegate;
+    private final java.util.Map<String, CachedMap> cache;
+    // Letture in corso per mappa, protette dallo stesso lock di cache.
+    private final java.util.Map<String, Loading> loading = new HashMap<>();
+    private final ExecutorService loader;
+    private final long expireAfterNanos;
+
+    public CachingStatsStorage(StatsStorage delegate, int maxMaps, long expireAfterMillis) {
+        this.delegate = delegate;
+        this.expireAfterNanos = expireAfterMillis > 0L ? expireAfterMillis * 1_000_000L : 0L;
+        this.cache = new LinkedHashMap<>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(java.util.Map.Entry<String, CachedMap> eldest) {
+                return size() > maxMaps;
+            }
+        };
+        this.loader = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "zCrono-cache");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public StatsStorage delegate() {
+        return delegate;
+    }
+
+    @Override
+    public void load() {
+        invalidateAll();
+        delegate.load();
+    }
+
+    @Override
+    public void save() {
+        delegate.save();
+    }
+
+    @Override
+    public void close() {
+        loader.shutdownNow();
+        delegate.close();
+        invalidateAll();
+    }
+
+    @Override
+    public void recordRun(String mapName, UUID playerId, String playerName, long nanos) {
+        delegate.recordRun(mapName, playerId, playerName, nanos);
+        if (mapName == null || playerId == null || nanos <= 0L) {
+            return;
+        }
+
+        apply(mapName, cached -> {
+            OptionalLong current = cached.times.get(playerId);
+            if (current.isEmpty() || nanos < current.getAsLong()) {
+                cached.times.put(playerId, nanos);
+            }
+            if (playerName != null && !playerName.isEmpty()) {
+                cached.names.put(playerId, playerName);
+            }
+        });
+    }
+
+    @Override
+    public boolean resetPlayer(String mapName, UUID playerId) {
+        boolean changed = delegate.resetPlayer(mapName, playerId);
+        if (mapName == null || playerId == null) {
+            return changed;
+        }
+
+        apply(mapName, cached -> cached.times.remove(playerId));
+        return changed;
+    }
+
+    @Override
+    public boolean resetMap(String mapName) {
+        boolean changed = delegate.resetMap(mapName);
+        if (mapName == null) {
+            return changed;
+        }
+
+        synchronized (cache) {
+            String mapKey = normalizeKey(mapName);
+            cache.put(mapKey, new CachedMap());
+            Loading current = loading.get(mapKey);
+            if (current != null) {
+                current.writes.add(CachedMap::clear);
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public OptionalLong getBestTime(String mapName, UUID playerId) {
+        if (mapName == null || playerId == null) {
+            return OptionalLong.empty();
+        }
+
+        CachedMap cached = leaderboard(mapName);
+        synchronized (cache) {
+            return cached.times.get(playerId);
+        }
+    }
+
+    @Override
+    public OptionalInt getRank(String mapName, UUID playerId) {
+        if (mapName == null || playerId == null) {
+            return OptionalInt.empty();
+        }
+
+        // La posizione si legge dalla classifica in cache; finché non è pronta basta la query sull'indice.
+        synchronized (cache) {
+            CachedMap cached = current(normalizeKey(mapName));
+            if (cached != null) {
+                return cached.times.rankOf(playerId);
+            }
+        }
+        return delegate.getRank(mapName, playerId);
+    }
+
+    @Override
+    public Optional<StatsManager.LeaderboardEntry> getTopEntry(String mapName, int position) {
+        if (mapName == null || position <= 0) {
+            return Optional.empty();
+        }
+
+        CachedMap cached = leaderboard(mapName);
+        synchronized (cache) {
+            Leaderboard.Entry entry = cached.times.entryAt(position);
+            return entry != null ? Optional.of(cached.toEntry(entry)) : Optional.empty();
+        }
+    }
+
+    @Override
+    public List<StatsManager.LeaderboardEntry> getEntries(String mapName) {
+        if (mapName == null) {
+            return Collections.emptyList();
+        }
+
+        CachedMap cached = leaderboard(mapName);
+        synchronized (cache) {
+            if (cached.times.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            List<StatsManager.LeaderboardEntry> entries = new ArrayList<>(cached.times.size());
+            for (Leaderboard.Entry entry : cached.times.entries()) {
+                entries.add(cached.toEntry(entry));
+            }
+            return Collections.unmodifiableList(entries);
+        }
+    }
+
+    @Override
+    public List<StatsManager.LeaderboardEntry> getTopEntries(String mapName, int limit) {
+        if (mapName == null || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        CachedMap cached = leaderboard(mapName);
+        synchronized (cache) {
+            int size = Math.min(limit, cached.times.size());
+            List<StatsManager.LeaderboardEntry> entries = new ArrayList<>(size);
+            for (int position = 1; position <= size; position++) {
+                entries.add(cached.toEntry(cached.times.entryAt(position)));
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * Miglior tempo letto solo dalla cache: se la classifica non è ancora pronta viene caricata in background
+     * e intanto il risultato è vuoto. Non blocca mai il thread chiamante.
+     */
+    public OptionalLong getCachedBestTime(String mapName, UUID playerId) {
+        if (mapName == null || playerId == null) {
+            return OptionalLong.empty();
+        }
+
+        synchronized (cache) {
+            CachedMap cached = current(normalizeKey(mapName));
+            return cached != null ? cached.times.get(playerId) : OptionalLong.empty();
+        }
+    }
+
+    public OptionalInt getCachedRank(String mapName, UUID playerId) {
+        if (mapName == null || playerId == null) {
+            return OptionalInt.empty();
+        }
+
+        synchronized (cache) {
+            CachedMap cached = current(normalizeKey(mapName));
+            return cached != null ? cached.times.rankOf(playerId) : OptionalInt.empty();
+        }
+    }
+
+    public Optional<StatsManager.LeaderboardEntry> getCachedTopEntry(String mapName, int position) {
+        if (mapName == null || position <= 0) {
+            return Optional.empty();
+        }
+
+        synchronized (cache) {
+            CachedMap cached = current(normalizeKey(mapName));
+            Leaderboard.Entry entry = cached != null ? cached.times.entryAt(position) : null;
+            return entry != null ? Optional.of(cached.toEntry(entry)) : Optional.empty();
+        }
+    }
+
+    @Override
+    public void saveOngoingRun(String mapName, UUID playerId, String playerName, long nanos) {
+        delegate.saveOngoingRun(mapName, playerId, playerName, nanos);
+    }
+
+    @Override
+    public List<StatsManager.OngoingRun> getAllOngoingRuns() {
+        return delegate.getAllOngoingRuns();
+    }
+
+    /**
+     * Classifica in cache della mappa; se manca attende che venga letta dal thread della cache.
+     * Se la lettura fallisce viene rilanciato l'errore, senza mettere in cache una classifica vuota.
+     * Va chiamato solo fuori dal thread del server.
+     */
+    private CachedMap leaderboard(String mapName) {
+        String mapKey = normalizeKey(mapName);
+        CompletableFuture<CachedMap> pending;
+        synchronized (cache) {
+            CachedMap cached = current(mapKey);
+            if (cached != null) {
+                return cached;
+            }
+            pending = loading.get(mapKey).future;
+        }
+
+        try {
+            return pending.join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw exception;
+        }
+    }
+
+    /**
+     * Classifica in cache, anche se scaduta, oppure {@code null}; se manca o è scaduta ne avvia la lettura.
+     * Da chiamare tenendo il lock di cache.
+     */
+    private CachedMap current(String mapKey) {
+        CachedMap cached = cache.get(mapKey);
+        if (cached == null || isExpired(cached)) {
+            startLoad(mapKey);
+        }
+        return cached;
+    }
+
+    private void startLoad(String mapKey) {
+        if (loading.containsKey(mapKey)) {
+            return;
+        }
+
+        Loading started = new Loading();
+        loading.put(mapKey, started);
+        try {
+            loader.execute(() -> load(mapKey, started));
+        } catch (RejectedExecutionException exception) {
+            // Cache chiusa: la classifica non verrà più letta.
+            started.future.complete(new CachedMap());
+        }
+    }
+
+    /**
+     * Legge la classifica senza forzare il salvataggio dei tempi in coda (lo storage li include già nella lettura)
+     * e ci riapplica le scritture arrivate nel frattempo, prima di metterla in cache.
+     * Se la lettura fallisce non viene messo in cache niente e la richiesta successiva la riprova.
+     */
+    private void load(String mapKey, Loading started) {
+        CachedMap loaded = new CachedMap();
+        try {
+            for (StatsManager.LeaderboardEntry entry : delegate.getEntries(mapKey)) {
+                loaded.times.put(entry.playerId(), entry.timeNanos());
+                loaded.names.put(entry.playerId(), entry.name());
+            }
+        } catch (RuntimeException exception) {
+            synchronized (cache) {
+                loading.remove(mapKey, started);
+            }
+            started.future.completeExceptionally(exception);
+            return;
+        }
+
+        synchronized (cache) {
+            for (Consumer<CachedMap> write : started.writes) {
+                write.accept(loaded);
+            }
+            if (loading.remove(mapKey, started)) {
+                cache.put(mapKey, loaded);
+            }
+        }
+        started.future.complete(loaded);
+    }
+
+    /**
+     * Applica una scrittura alla classifica in cache e la ricorda per quella in lettura, se c'è.
+     */
+    private void apply(String mapName, Consumer<CachedMap> write) {
+        synchronized (cache) {
+            String mapKey = normalizeKey(mapName);
+            CachedMap cached = cache.get(mapKey);
+            if (cached != null) {
+                write.accept(cached);
+            }
+            Loading current = loading.get(mapKey);
+            if (current != null) {
+                current.writes.add(write);
+            }
+        }
+    }
+
+    private boolean isExpired(CachedMap cached) {
+        return expireAfterNanos > 0L && System.nanoTime() - cached.loadedAt > expireAfterNanos;
+    }
+
+    private void invalidateAll() {
+        synchronized (cache) {
+            cache.clear();
+            loading.clear();
+        }
+    }
+
+    private String normalizeKey(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class CachedMap {
+        private final Leaderboard times = new Leaderboard();
+        private final java.util.Map<UUID, String> names = new HashMap<>();
+        private final long loadedAt = System.nanoTime();
+
+        void clear() {
+            times.clear();
+            names.clear();
+        }
+
+        StatsManager.LeaderboardEntry toEntry(Leaderboard.Entry entry) {
+            String name = names.get(entry.playerId());
+            return new StatsManager.LeaderboardEntry(entry.playerId(), name != null ? name : entry.playerId().toString(),
+                    entry.nanos());
+        }
+    }
+
+    private static final class Loading {
+        private final CompletableFuture<CachedMap> future = new CompletableFuture<>();
+        private final List<Consumer<CachedMap>> writes = new ArrayList<>();
+    }
+}
@@ -0,0 +1,115 @@
+package com.zKraft.map;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Timing wheel condivisa dai countdown di partenza: un solo task la fa avanzare di un tick
+ * e consegna in blocco tutti i timer scaduti, senza creare un task dello scheduler per giocatore.
+ */
+public final class CountdownWheel<T extends CountdownWheel.Timer> {
+
+    private static final int SLOT_COUNT = 64;
+    private static final int SLOT_MASK = SLOT_COUNT - 1;
+
+    private final List<List<T>> slots = new ArrayList<>(SLOT_COUNT);
+    // I timer possono essere programmati da qualsiasi thread (regioni di Folia): entrano nella ruota al tick successivo.
+    private final Queue<T> incoming = new ConcurrentLinkedQueue<>();
+    private final List<T> due = new ArrayList<>();
+    private long currentTick;
+    private int size;
+
+    public CountdownWheel() {
+        for (int index = 0; index < SLOT_COUNT; index++) {
+            slots.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Programma il timer per scadere tra {@code delayTicks} tick (minimo uno).
+     */
+    public void schedule(T timer, long delayTicks) {
+        timer.delayTicks = Math.max(1L, delayTicks);
+        timer.targetTick = 0L;
+        incoming.add(timer);
+    }
+
+    /**
+     * Riprogramma un timer appena scaduto a {@code periodTicks} dal tick in cui doveva scadere, non da quello
+     * in cui viene chiamato: su Folia il timer gira sul thread della regione un tick dopo, e il ritardo non si accumula.
+     */
+    public void reschedule(T timer, long periodTicks) {
+        timer.targetTick = timer.dueTick + Math.max(1L, periodTicks);
+        incoming.add(timer);
+    }
+
+    /**
+     * Avanza la ruota di un tick e passa a {@code consumer} i timer scaduti e non annullati.
+     */
+    public void advance(Consumer<List<T>> consumer) {
+        long tick = ++currentTick;
+
+        T pending;
+        while ((pending = incoming.poll()) != null) {
+            // Un timer riprogrammato in ritardo scade subito, senza slittare al giro successivo.
+            pending.dueTick = pending.targetTick > 0L ? Math.max(tick, pending.targetTick) : tick + pending.delayTicks - 1L;
+            pending.targetTick = 0L;
+            slots.get((int) (pending.dueTick & SLOT_MASK)).add(pending);
+            size++;
+        }
+
+        if (size == 0) {
+            return;
+        }
+
+        List<T> slot = slots.get((int) (tick & SLOT_MASK));
+        int kept = 0;
+        for (int index = 0; index < slot.size(); index++) {
+            T timer = slot.get(index);
+            if (timer.dueTick > tick) {
+                // Scade in un giro successivo della ruota.
+                slot.set(kept++, timer);
+                continue;
+            }
+
+            size--;
+            if (!timer.isCancelled()) {
+                due.add(timer);
+            }
+        }
+        slot.subList(kept, slot.size()).clear();
+
+        if (due.isEmpty()) {
+            return;
+        }
+
+        try {
+            consumer.accept(due);
+        } finally {
+            due.clear();
+        }
+    }
+
+    public void clear() {
+        incoming.clear();
+        for (List<T> slot : slots) {
+            slot.clear();
+        }
+        size = 0;
+    }
+
+    /**
+     * Elemento della ruota; l'annullamento è pigro e il timer viene scartato quando il suo slot viene visitato.
+     */
+    public abstract static class Timer {
+        long delayTicks;
+        long dueTick;
+        // Tick assoluto richiesto da reschedule, 0 se il timer usa delayTicks.
+        long targetTick;
+
+        protected abstract boolean isCancelled();
+    }
+}
@@ -7,63 +7,114 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Preparazione Database
+ * Preparazione Database (schema v2: UUID binari da 16 byte e mappe identificate da un intero di zcrono_maps).
+ * Le tabelle della versione precedente vengono spostate qui da {@link SchemaMigration}.
  */
 public class DatabasePreparer {
 
-    private static final String CREATE_PLAYERS_TABLE = """
-            CREATE TABLE IF NOT EXISTS zcrono_players (
-                uuid CHAR(36) NOT NULL,
+    private static final String[] MYSQL_SCHEMA = {
+            """
+            CREATE TABLE IF NOT EXISTS zcrono_maps (
+                id INT NOT NULL AUTO_INCREMENT,
+                map_key VARCHAR(128) NOT NULL,
+                PRIMARY KEY (id),
+                UNIQUE KEY uk_zcrono_maps_key (map_key)
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS zcrono_players_v2 (
+                uuid BINARY(16) NOT NULL,
                 name VARCHAR(64) NOT NULL,
                 PRIMARY KEY (uuid),
-                KEY idx_zcrono_players_name (name)
+                KEY idx_zcrono_players_v2_name (name)
             ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
-            """;
-
-    private static final String CREATE_MAP_TIMES_TABLE = """
-            CREATE TABLE IF NOT EXISTS zcrono_map_times (
-                map_key VARCHAR(128) NOT NULL,
-                player_uuid CHAR(36) NOT NULL,
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS zcrono_map_times_v2 (
+                map_id INT NOT NULL,
+                player_uuid BINARY(16) NOT NULL,
                 best_nanos BIGINT NOT NULL,
-                PRIMARY KEY (map_key, player_uuid),
-                KEY idx_zcrono_map_times_map (map_key, best_nanos, player_uuid),
-                KEY idx_zcrono_map_times_player (player_uuid)
-            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
-            """;
-
-    private static final String CREATE_MAP_TIMES_UNCOMPLETED_TABLE = """
-            CREATE TABLE IF NOT EXISTS zcrono_map_times_uncompleted (
-                map_key VARCHAR(128) NOT NULL,
-                player_uuid CHAR(36) NOT NULL,
+                PRIMARY KEY (map_id, player_uuid),
+                KEY idx_zcrono_map_times_v2_map (map_id, best_nanos, player_uuid),
+                KEY idx_zcrono_map_times_v2_player (player_uuid)
+            ) ENGINE=InnoDB;
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS zcrono_map_times_uncompleted_v2 (
+                map_id INT NOT NULL,
+                player_uuid BINARY(16) NOT NULL,
                 best_nanos BIGINT NOT NULL,
-                PRIMARY KEY (map_key, player_uuid),
-                KEY idx_zcrono_map_times_uncompleted_map (map_key, player_uuid)
-            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
-            """;
+                PRIMARY KEY (map_id, player_uuid)
+            ) ENGINE=InnoDB;
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS zcrono_deleted_map_times_v2 (
+                map_id INT NOT NULL,
+                player_uuid BINARY(16) NOT NULL,
+                best_nanos BIGINT NOT NULL,
+                is_run_finished TINYINT(1) NOT NULL,
+                PRIMARY KEY (map_id, player_uuid, is_run_finished)
+            ) ENGINE=InnoDB;
+            """
+    };
 
-    private static final String CREATE_DELETED_MAP_TIMES_TABLE = """
-            CREATE TABLE IF NOT EXISTS zcrono_deleted_map_times (
-                map_key VARCHAR(128) NOT NULL,
-                player_uuid CHAR(36) NOT NULL,
+    // Stesse tabelle per SQLite: gli indici vanno creati a parte e WITHOUT ROWID ordina le righe per chiave primaria.
+    private static final String[] SQLITE_SCHEMA = {
+            """
+            CREATE TABLE IF NOT EXISTS zcrono_maps (
+                id INTEGER PRIMARY KEY,
+                map_key VARCHAR(128) NOT NULL UNIQUE
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS zcrono_players_v2 (
+                uuid BLOB NOT NULL PRIMARY KEY,
+                name VARCHAR(64) NOT NULL
+            ) WITHOUT ROWID
+            """,
+            "CREATE INDEX IF NOT EXISTS idx_zcrono_players_v2_name ON zcrono_players_v2 (name)",
+            """
+            CREATE TABLE IF NOT EXISTS zcrono_map_times_v2 (
+                map_id INTEGER NOT NULL,
+                player_uuid BLOB NOT NULL,
+                best_nanos BIGINT NOT NULL,
+                PRIMARY KEY (map_id, player_uuid)
+            ) WITHOUT ROWID
+            """,
+            "CREATE INDEX IF NOT EXISTS idx_zcrono_map_times_v2_map ON zcrono_map_times_v2 (map_id, best_nanos, player_uuid)",
+            "CREATE INDEX IF NOT EXISTS idx_zcrono_map_times_v2_player ON zcrono_map_times_v2 (player_uuid)",
+            """
+            CREATE TABLE IF NOT EXISTS zcrono_map_times_uncompleted_v2 (
+                map_id INTEGER NOT NULL,
+                player_uuid BLOB NOT NULL,
+                best_nanos BIGINT NOT NULL,
+                PRIMARY KEY (map_id, player_uuid)
+            ) WITHOUT ROWID
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS zcrono_deleted_map_times_v2 (
+                map_id INTEGER NOT NULL,
+                player_uuid BLOB NOT NULL,
                 best_nanos BIGINT NOT NULL,
                 is_run_finished TINYINT(1) NOT NULL,
-                PRIMARY KEY (map_key, player_uuid, is_run_finished),
-                KEY idx_zcrono_deleted_map_times_map (map_key, player_uuid, is_run_finished)
-            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
-            """;
+                PRIMARY KEY (map_id, player_uuid, is_run_finished)
+            ) WITHOUT ROWID
+            """
+    };
 
     private final Logger logger;
+    private final SqlDialect dialect;
 
-    public DatabasePreparer(Logger logger) {
+    public DatabasePreparer(Logger logger, SqlDialect dialect) {
         this.logger = logger;
+        this.dialect = dialect;
     }
 
     public void prepare(Connection connection) {
         try (Statement statement = connection.createStatement()) {
-            statement.executeUpdate(CREATE_PLAYERS_TABLE);
-            statement.executeUpdate(CREATE_MAP_TIMES_TABLE);
-            statement.executeUpdate(CREATE_MAP_TIMES_UNCOMPLETED_TABLE);
-            statement.executeUpdate(CREATE_DELETED_MAP_TIMES_TABLE);
+            for (String sql : dialect == SqlDialect.SQLITE ? SQLITE_SCHEMA : MYSQL_SCHEMA) {
+                statement.executeUpdate(sql);
+            }
         } catch (SQLException exception) {
             logger.log(Level.SEVERE, "Impossibile preparare il database di zCrono", exception);
         }
@@ -1,5 +1,6 @@
 package com.zKraft.map;
 
+import java.io.File;
 import java.util.Locale;
 
 /**
@@ -7,28 +8,61 @@ import java.util.Locale;
  */
 public class DatabaseSettings {
 
+    private final SqlDialect dialect;
+    private final File databaseFile;
     private final String host;
     private final int port;
     private final String database;
     private final String username;
     private final String password;
     private final boolean useSsl;
+    private final PoolSettings pool;
+    private final WriteBehindSettings writeBehind;
 
     public DatabaseSettings(String host, int port, String database, String username, String password, boolean useSsl) {
+        this(host, port, database, username, password, useSsl, PoolSettings.DEFAULT, WriteBehindSettings.DEFAULT);
+    }
+
+    public DatabaseSettings(String host, int port, String database, String username, String password, boolean useSsl,
+                            PoolSettings pool, WriteBehindSettings writeBehind) {
+        this(SqlDialect.MYSQL, null, host, port, database, username, password, useSsl, pool, writeBehind);
+    }
+
+    private DatabaseSettings(SqlDialect dialect, File databaseFile, String host, int port, String database, String username,
+                             String password, boolean useSsl, PoolSettings pool, WriteBehindSettings writeBehind) {
+        this.dialect = dialect;
+        this.databaseFile = databaseFile;
         this.host = host;
         this.port = port;
         this.database = database;
         this.username = username;
         this.password = password;
         this.useSsl = useSsl;
+        this.pool = pool;
+        this.writeBehind = writeBehind;
+    }
+
+    /**
+     * Database SQLite locale nel file indicato, senza credenziali.
+     */
+    public static DatabaseSettings sqlite(File databaseFile, WriteBehindSettings writeBehind) {
+        return new DatabaseSettings(SqlDialect.SQLITE, databaseFile, null, 0, null, null, null, false,
+                PoolSettings.SQLITE, writeBehind);
+    }
+
+    public SqlDialect dialect() {
+        return dialect;
     }
 
     public String jdbcUrl() {
+        if (dialect == SqlDialect.SQLITE) {
+            return "jdbc:sqlite:" + databaseFile.getAbsolutePath();
+        }
+
         String ssl = Boolean.toString(useSsl).toLowerCase(Locale.ROOT);
         return "jdbc:mysql://" + host + ':' + port + '/' + database
                 + "?useSSL=" + ssl
                 + "&allowPublicKeyRetrieval=true"
-                + "&autoReconnect=true"
                 + "&characterEncoding=UTF-8"
                 + "&serverTimezone=UTC";
     }
@@ -40,4 +74,33 @@ public class DatabaseSettings {
     public String password() {
         return password;
     }
+
+    public PoolSettings pool() {
+        return pool;
+    }
+
+    public WriteBehindSettings writeBehind() {
+        return writeBehind;
+    }
+
+    /**
+     * Impostazioni del pool di connessioni e della cache dei prepared statement.
+     */
+    public record PoolSettings(int minimumIdle, int maximumSize, long connectionTimeoutMillis,
+                               long validationTimeoutMillis, long maxLifetimeMillis, long leakDetectionMillis,
+                               int statementCacheSize, int statementCacheSqlLimit) {
+
+        public static final PoolSettings DEFAULT = new PoolSettings(2, 6, 5000L, 3000L, 1800000L, 0L, 250, 2048);
+        // SQLite ammette un solo scrittore alla volta: bastano poche connessioni, per lo più in lettura.
+        public static final PoolSettings SQLITE = new PoolSettings(1, 4, 5000L, 3000L, 1800000L, 0L, 0, 0);
+    }
+
+    /**
+     * Scrittura differita dei tempi: ogni {@code flushIntervalMillis} i tempi in coda vengono scritti insieme.
+     * Con intervallo 0 ogni tempo viene scritto subito.
+     */
+    public record WriteBehindSettings(long flushIntervalMillis, int maxPending) {
+
+        public static final WriteBehindSettings DEFAULT = new WriteBehindSettings(500L, 256);
+    }
 }
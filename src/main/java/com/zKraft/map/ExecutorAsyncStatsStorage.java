@@ -0,0 +1,186 @@
+package com.zKraft.map;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Esegue uno {@link StatsStorage} sincrono su un executor dedicato.
+ * Tutte le operazioni passano dallo stesso executor, quindi restano nell'ordine in cui sono state richieste.
+ * Le scritture non vengono mai scartate; se il database rallenta, oltre {@code maxPendingReads} letture in coda
+ * le nuove letture falliscono subito.
+ */
+public final class ExecutorAsyncStatsStorage implements AsyncStatsStorage {
+
+    private static final long CLOSE_TIMEOUT_SECONDS = 10L;
+
+    private final StatsStorage storage;
+    private final Executor executor;
+    private final Logger logger;
+    private final int maxPendingReads;
+    private final AtomicInteger pendingReads = new AtomicInteger();
+
+    public ExecutorAsyncStatsStorage(StatsStorage storage, Executor executor, Logger logger) {
+        this(storage, executor, logger, Integer.MAX_VALUE);
+    }
+
+    public ExecutorAsyncStatsStorage(StatsStorage storage, Executor executor, Logger logger, int maxPendingReads) {
+        this.storage = storage;
+        this.executor = executor;
+        this.logger = logger;
+        this.maxPendingReads = Math.max(1, maxPendingReads);
+    }
+
+    /**
+     * Executor con un solo thread e una coda senza limite: le scritture vengono sempre accodate
+     * (e lo storage SQL le accorpa già per mappa e giocatore), il limite si applica solo alle letture.
+     */
+    public static ExecutorService createIoExecutor() {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "zCrono-IO");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> recordRun(String mapName, UUID playerId, String playerName, long nanos) {
+        return supply(() -> {
+            OptionalLong previous;
+            try {
+                previous = storage.getBestTime(mapName, playerId);
+            } catch (RuntimeException exception) {
+                // Senza il tempo precedente il record va comunque salvato: si considera migliorato.
+                logger.log(Level.WARNING, "Impossibile leggere il miglior tempo precedente", exception);
+                previous = OptionalLong.empty();
+            }
+            storage.recordRun(mapName, playerId, playerName, nanos);
+            return previous.isEmpty() || nanos < previous.getAsLong();
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> resetPlayer(String mapName, UUID playerId) {
+        return supply(() -> storage.resetPlayer(mapName, playerId));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> resetMap(String mapName) {
+        return supply(() -> storage.resetMap(mapName));
+    }
+
+    @Override
+    public CompletableFuture<OptionalLong> getBestTime(String mapName, UUID playerId) {
+        return read(() -> storage.getBestTime(mapName, playerId));
+    }
+
+    @Override
+    public CompletableFuture<OptionalInt> getRank(String mapName, UUID playerId) {
+        return read(() -> storage.getRank(mapName, playerId));
+    }
+
+    @Override
+    public CompletableFuture<Optional<StatsManager.LeaderboardEntry>> getTopEntry(String mapName, int position) {
+        return read(() -> storage.getTopEntry(mapName, position));
+    }
+
+    @Override
+    public CompletableFuture<List<StatsManager.LeaderboardEntry>> getEntries(String mapName) {
+        return read(() -> storage.getEntries(mapName));
+    }
+
+    @Override
+    public CompletableFuture<List<StatsManager.LeaderboardEntry>> getTopEntries(String mapName, int limit) {
+        return read(() -> storage.getTopEntries(mapName, limit));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveOngoingRun(String mapName, UUID playerId, String playerName, long nanos) {
+        return run(() -> storage.saveOngoingRun(mapName, playerId, playerName, nanos));
+    }
+
+    @Override
+    public CompletableFuture<List<StatsManager.OngoingRun>> getAllOngoingRuns() {
+        return supply(storage::getAllOngoingRuns);
+    }
+
+    @Override
+    public void close() {
+        if (!(executor instanceof ExecutorService service)) {
+            return;
+        }
+
+        service.shutdown();
+        try {
+            if (!service.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warning("Alcune operazioni sulle statistiche non sono state completate entro "
+                        + CLOSE_TIMEOUT_SECONDS + " secondi.");
+                service.shutdownNow();
+            }
+        } catch (InterruptedException exception) {
+            service.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<Void> run(Runnable task) {
+        return supply(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Lettura: se ce ne sono già troppe in coda fallisce subito invece di allungare la coda delle scritture.
+     */
+    private <T> CompletableFuture<T> read(Supplier<T> task) {
+        if (pendingReads.incrementAndGet() > maxPendingReads) {
+            pendingReads.decrementAndGet();
+            logger.warning("Troppe letture delle statistiche in coda, lettura scartata.");
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Troppe letture in coda"));
+        }
+
+        return supply(task).whenComplete((result, error) -> pendingReads.decrementAndGet());
+    }
+
+    private <T> CompletableFuture<T> supply(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Runnable wrapped = () -> {
+            try {
+                future.complete(task.get());
+            } catch (Throwable exception) {
+                // Anche un Error deve completare il future, altrimenti chi attende con join() resta bloccato.
+                logger.log(Level.SEVERE, "Errore durante un'operazione sulle statistiche", exception);
+                future.completeExceptionally(exception);
+            }
+        };
+
+        try {
+            executor.execute(wrapped);
+        } catch (RejectedExecutionException exception) {
+            if (executor instanceof ExecutorService service && service.isShutdown()) {
+                // Executor già chiuso durante lo spegnimento: si esegue qui per non perdere dati.
+                wrapped.run();
+            } else {
+                logger.log(Level.SEVERE, "Impossibile accodare un'operazione sulle statistiche", exception);
+                future.completeExceptionally(exception);
+            }
+        }
+        return future;
+    }
+}
@@ -0,0 +1,51 @@
+package com.zKraft.map;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+
+/**
+ * Scheduler per Folia: i task dei giocatori usano l'entity scheduler, il resto il global region scheduler.
+ */
+public final class FoliaRuntimeScheduler implements RuntimeScheduler {
+
+    private final JavaPlugin plugin;
+
+    public FoliaRuntimeScheduler(JavaPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return true;
+    }
+
+    @Override
+    public Task runTimer(Runnable task, long delayTicks, long periodTicks) {
+        ScheduledTask scheduled = plugin.getServer().getGlobalRegionScheduler()
+                .runAtFixedRate(plugin, unused -> task.run(), Math.max(1L, delayTicks), periodTicks);
+        return scheduled::cancel;
+    }
+
+    @Override
+    public Task runTimer(Player player, Runnable task, long delayTicks, long periodTicks) {
+        ScheduledTask scheduled = player.getScheduler()
+                .runAtFixedRate(plugin, unused -> task.run(), null, Math.max(1L, delayTicks), periodTicks);
+        // null se il giocatore è già stato rimosso dal mondo.
+        return scheduled != null ? scheduled::cancel : NO_TASK;
+    }
+
+    @Override
+    public void runFor(Player player, Runnable task) {
+        player.getScheduler().run(plugin, unused -> task.run(), null);
+    }
+
+    @Override
+    public void runGlobal(Runnable task) {
+        if (plugin.getServer().isGlobalTickThread()) {
+            task.run();
+            return;
+        }
+        plugin.getServer().getGlobalRegionScheduler().execute(plugin, task);
+    }
+}
@@ -0,0 +1,241 @@
+package com.zKraft.map;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Classifica di una mappa ordinata per tempo e poi per UUID (senza segno, come il database).
+ * È un treap con la dimensione dei sottoalberi: inserimento, rimozione, posizione e k-esimo in O(log n).
+ */
+final class Leaderboard {
+
+    private final Map<UUID, Long> times = new HashMap<>();
+    private Node root;
+
+    OptionalLong get(UUID playerId) {
+        Long value = times.get(playerId);
+        return value != null ? OptionalLong.of(value) : OptionalLong.empty();
+    }
+
+    /**
+     * Imposta il tempo del giocatore, sostituendo quello precedente.
+     */
+    void put(UUID playerId, long nanos) {
+        Long previous = times.put(playerId, nanos);
+        if (previous != null) {
+            if (previous == nanos) {
+                return;
+            }
+            root = erase(root, previous, playerId);
+        }
+
+        Node node = new Node(playerId, nanos);
+        Node[] parts = split(root, nanos, playerId);
+        root = merge(merge(parts[0], node), parts[1]);
+    }
+
+    Long remove(UUID playerId) {
+        Long previous = times.remove(playerId);
+        if (previous != null) {
+            root = erase(root, previous, playerId);
+        }
+        return previous;
+    }
+
+    void clear() {
+        times.clear();
+        root = null;
+    }
+
+    /**
+     * Posizione del giocatore, partendo da 1.
+     */
+    OptionalInt rankOf(UUID playerId) {
+        Long nanos = times.get(playerId);
+        if (nanos == null) {
+            return OptionalInt.empty();
+        }
+
+        int ahead = 0;
+        Node node = root;
+        while (node != null) {
+            int comparison = compare(nanos, playerId, node);
+            if (comparison < 0) {
+                node = node.left;
+            } else {
+                ahead += size(node.left);
+                if (comparison == 0) {
+                    return OptionalInt.of(ahead + 1);
+                }
+                ahead++;
+                node = node.right;
+            }
+        }
+        return OptionalInt.empty();
+    }
+
+    /**
+     * Voce in posizione {@code position} (partendo da 1), oppure {@code null} se la classifica è più corta.
+     */
+    Entry entryAt(int position) {
+        if (position <= 0 || position > size(root)) {
+            return null;
+        }
+
+        int remaining = position;
+        Node node = root;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (remaining <= leftSize) {
+                node = node.left;
+            } else if (remaining == leftSize + 1) {
+                return new Entry(node.playerId, node.nanos);
+            } else {
+                remaining -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        return null;
+    }
+
+    List<Entry> entries() {
+        if (root == null) {
+            return Collections.emptyList();
+        }
+
+        List<Entry> entries = new ArrayList<>(size(root));
+        List<Node> stack = new ArrayList<>();
+        Node node = root;
+        while (node != null || !stack.isEmpty()) {
+            while (node != null) {
+                stack.add(node);
+                node = node.left;
+            }
+            node = stack.remove(stack.size() - 1);
+            entries.add(new Entry(node.playerId, node.nanos));
+            node = node.right;
+        }
+        return entries;
+    }
+
+    /**
+     * Tempi per giocatore, in sola lettura; usati per il salvataggio.
+     */
+    Map<UUID, Long> times() {
+        return Collections.unmodifiableMap(times);
+    }
+
+    int size() {
+        return times.size();
+    }
+
+    boolean isEmpty() {
+        return times.isEmpty();
+    }
+
+    /**
+     * Ordine tra UUID a parità di tempo: byte per byte senza segno, come i BINARY(16) di MySQL e i BLOB di SQLite.
+     * {@link UUID#compareTo} confronta le due metà con segno e darebbe un ordine diverso.
+     */
+    static int compareIds(UUID first, UUID second) {
+        int comparison = Long.compareUnsigned(first.getMostSignificantBits(), second.getMostSignificantBits());
+        return comparison != 0 ? comparison
+                : Long.compareUnsigned(first.getLeastSignificantBits(), second.getLeastSignificantBits());
+    }
+
+    private static int compare(long nanos, UUID playerId, Node node) {
+        int comparison = Long.compare(nanos, node.nanos);
+        return comparison != 0 ? comparison : compareIds(playerId, node.playerId);
+    }
+
+    /**
+     * Divide l'albero in [chiavi minori di (nanos, playerId)] e [chiavi maggiori o uguali].
+     */
+    private static Node[] split(Node node, long nanos, UUID playerId) {
+        if (node == null) {
+            return new Node[]{null, null};
+        }
+
+        if (compare(nanos, playerId, node) > 0) {
+            Node[] parts = split(node.right, nanos, playerId);
+            node.right = parts[0];
+            node.update();
+            return new Node[]{node, parts[1]};
+        }
+
+        Node[] parts = split(node.left, nanos, playerId);
+        node.left = parts[1];
+        node.update();
+        return new Node[]{parts[0], node};
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private static Node erase(Node node, long nanos, UUID playerId) {
+        if (node == null) {
+            return null;
+        }
+
+        int comparison = compare(nanos, playerId, node);
+        if (comparison == 0) {
+            return merge(node.left, node.right);
+        }
+
+        if (comparison < 0) {
+            node.left = erase(node.left, nanos, playerId);
+        } else {
+            node.right = erase(node.right, nanos, playerId);
+        }
+        node.update();
+        return node;
+    }
+
+    private static int size(Node node) {
+        return node != null ? node.size : 0;
+    }
+
+    record Entry(UUID playerId, long nanos) {
+    }
+
+    private static final class Node {
+        private final UUID playerId;
+        private final long nanos;
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private int size = 1;
+        private Node left;
+        private Node right;
+
+        Node(UUID playerId, long nanos) {
+            this.playerId = playerId;
+            this.nanos = nanos;
+        }
+
+        void update() {
+            size = 1 + size(left) + size(right);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.zKraft.map;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Podio di ogni mappa già formattato per i placeholder. Ogni snapshot è immutabile e viene sostituito
+ * in blocco dopo un record o un reset, quindi può essere letto da qualsiasi thread senza toccare lo storage.
+ */
+public final class LeaderboardSnapshots {
+
+    private final int size;
+    private final long maxAgeNanos;
+    private final java.util.Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    // Mappe da rileggere al prossimo aggiornamento.
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final AtomicLong versions = new AtomicLong();
+
+    public LeaderboardSnapshots(int size, long maxAgeMillis) {
+        this.size = size;
+        this.maxAgeNanos = maxAgeMillis > 0L ? maxAgeMillis * 1_000_000L : 0L;
+    }
+
+    /**
+     * Numero di posizioni tenute in ogni snapshot.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Snapshot della mappa, oppure {@code null} se non è ancora stato calcolato (verrà preparato al prossimo aggiornamento).
+     */
+    public Snapshot get(String mapName) {
+        String mapKey = normalizeKey(mapName);
+        Snapshot snapshot = snapshots.get(mapKey);
+        if (snapshot == null || (maxAgeNanos > 0L && System.nanoTime() - snapshot.createdAt > maxAgeNanos)) {
+            dirty.add(mapKey);
+        }
+        return snapshot;
+    }
+
+    public void invalidate(String mapName) {
+        if (mapName != null) {
+            dirty.add(normalizeKey(mapName));
+        }
+    }
+
+    /**
+     * Toglie lo snapshot della mappa, ad esempio dopo un reset o l'eliminazione.
+     */
+    public void remove(String mapName) {
+        if (mapName != null) {
+            String mapKey = normalizeKey(mapName);
+            dirty.remove(mapKey);
+            snapshots.remove(mapKey);
+        }
+    }
+
+    public void clear() {
+        snapshots.clear();
+        dirty.clear();
+    }
+
+    /**
+     * Toglie dalla coda le mappe da rileggere; per ognuna va chiamato {@link #publish} con una nuova versione.
+     */
+    List<String> drainDirty() {
+        List<String> keys = List.copyOf(dirty);
+        dirty.removeAll(keys);
+        return keys;
+    }
+
+    long nextVersion() {
+        return versions.incrementAndGet();
+    }
+
+    /**
+     * Pubblica il podio letto dallo storage, a meno che nel frattempo non ne sia arrivato uno più recente.
+     */
+    void publish(String mapKey, long version, List<StatsManager.LeaderboardEntry> entries) {
+        Snapshot snapshot = new Snapshot(version, entries);
+        snapshots.merge(mapKey, snapshot, (current, updated) -> updated.version > current.version ? updated : current);
+    }
+
+    private static String normalizeKey(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Podio immutabile: nomi, tempi formattati e righe "nome tempo", indicizzati dalla posizione.
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final long createdAt = System.nanoTime();
+        private final String[] names;
+        private final String[] times;
+        private final String[] lines;
+
+        private Snapshot(long version, List<StatsManager.LeaderboardEntry> entries) {
+            this.version = version;
+            this.names = new String[entries.size()];
+            this.times = new String[entries.size()];
+            this.lines = new String[entries.size()];
+            for (int index = 0; index < entries.size(); index++) {
+                StatsManager.LeaderboardEntry entry = entries.get(index);
+                names[index] = entry.name();
+                times[index] = TimeFormatter.format(entry.timeNanos());
+                lines[index] = names[index] + " " + times[index];
+            }
+        }
+
+        public long version() {
+            return version;
+        }
+
+        /**
+         * Nome alla posizione indicata (da 1), oppure {@code null} se la posizione è vuota.
+         */
+        public String name(int position) {
+            return position >= 1 && position <= names.length ? names[position - 1] : null;
+        }
+
+        public String time(int position) {
+            return position >= 1 && position <= times.length ? times[position - 1] : null;
+        }
+
+        public String line(int position) {
+            return position >= 1 && position <= lines.length ? lines[position - 1] : null;
+        }
+    }
+}
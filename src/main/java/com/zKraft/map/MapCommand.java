@@ -21,6 +21,7 @@ public class MapCommand implements CommandExecutor, TabCompleter {
 
     private static final String PERMISSION = "zcrono.admin";
     private static final long CONFIRMATION_TIMEOUT_MS = 30_000L; // 30sec comando di conferma per la delete di una mappa / reset
+    private static final String STATS_BUSY_MESSAGE = "Le statistiche sono occupate, riprova tra qualche secondo.";
 
     private final JavaPlugin plugin;
     private final MapManager manager;
@@ -163,6 +164,7 @@ public class MapCommand implements CommandExecutor, TabCompleter {
             runtimeManager.resetSessionsForMap(map.getName());
             statsManager.resetMap(map.getName());
             if (manager.deleteMap(map.getName())) {
+                statsManager.forgetMap(map.getName());
                 sender.sendMessage("Mappa \"" + map.getName() + "\" eliminata.");
             } else {
                 sender.sendMessage("Impossibile eliminare la mappa (forse è già stata rimossa).");
@@ -262,12 +264,16 @@ public class MapCommand implements CommandExecutor, TabCompleter {
 
         runtimeManager.resetPlayerSession(targetId);
 
-        if (statsManager.resetPlayer(map.getName(), targetId)) {
-            String displayName = target.getName() != null ? target.getName() : targetId.toString();
-            sender.sendMessage("Tempi di " + displayName + " su \"" + map.getName() + "\" azzerati.");
-        } else {
-            sender.sendMessage("Nessun tempo trovato per il giocatore su questa mappa.");
-        }
+        String displayName = target.getName() != null ? target.getName() : targetId.toString();
+        statsManager.resetPlayer(map.getName(), targetId).whenComplete((removed, error) -> {
+            if (error != null) {
+                sender.sendMessage(STATS_BUSY_MESSAGE);
+            } else if (removed) {
+                sender.sendMessage("Tempi di " + displayName + " su \"" + map.getName() + "\" azzerati.");
+            } else {
+                sender.sendMessage("Nessun tempo trovato per il giocatore su questa mappa.");
+            }
+        });
     }
 
     private void handleResetMap(CommandSender sender, String label, String[] args) {
@@ -290,13 +296,15 @@ public class MapCommand implements CommandExecutor, TabCompleter {
             }
 
             runtimeManager.resetSessionsForMap(map.getName());
-            boolean removed = statsManager.resetMap(map.getName());
-
-            if (removed) {
-                sender.sendMessage("Tutti i tempi per \"" + map.getName() + "\" sono stati rimossi.");
-            } else {
-                sender.sendMessage("Non ci sono tempi registrati per questa mappa.");
-            }
+            statsManager.resetMap(map.getName()).whenComplete((removed, error) -> {
+                if (error != null) {
+                    sender.sendMessage(STATS_BUSY_MESSAGE);
+                } else if (removed) {
+                    sender.sendMessage("Tutti i tempi per \"" + map.getName() + "\" sono stati rimossi.");
+                } else {
+                    sender.sendMessage("Non ci sono tempi registrati per questa mappa.");
+                }
+            });
             return;
         }
 
@@ -346,11 +354,15 @@ public class MapCommand implements CommandExecutor, TabCompleter {
         }
 
         String resolvedName = target.getName() != null ? target.getName() : args[2];
-        if (statsManager.recordManualRun(map.getName(), playerId, resolvedName, nanos.getAsLong())) {
-            sender.sendMessage("Tempo di " + resolvedName + " su \"" + map.getName() + "\" aggiornato.");
-        } else {
-            sender.sendMessage("Impossibile aggiungere il tempo specificato.");
-        }
+        statsManager.recordManualRun(map.getName(), playerId, resolvedName, nanos.getAsLong()).whenComplete((recorded, error) -> {
+            if (error != null) {
+                sender.sendMessage(STATS_BUSY_MESSAGE);
+            } else if (recorded) {
+                sender.sendMessage("Tempo di " + resolvedName + " su \"" + map.getName() + "\" aggiornato.");
+            } else {
+                sender.sendMessage("Il tempo specificato non migliora quello già registrato per " + resolvedName + ".");
+            }
+        });
     }
 
     private void handleReload(CommandSender sender) {
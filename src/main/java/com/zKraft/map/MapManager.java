@@ -20,6 +20,9 @@ public class MapManager {
     private final JavaPlugin plugin;
     private final java.util.Map<String, Map> maps = new LinkedHashMap<>();
     private final Logger logger;
+    private volatile ZoneIndex zoneIndex = ZoneIndex.EMPTY;
+    // Aumenta quando le mappe vengono ricaricate, create o eliminate.
+    private volatile int version;
 
     public MapManager(JavaPlugin plugin) {
         this.plugin = plugin;
@@ -31,9 +34,11 @@ public class MapManager {
         plugin.reloadConfig();
 
         maps.clear();
+        version++;
         FileConfiguration config = plugin.getConfig();
         ConfigurationSection mapsSection = config.getConfigurationSection("maps");
         if (mapsSection == null) {
+            rebuildZoneIndex();
             return;
         }
 
@@ -65,6 +70,8 @@ public class MapManager {
 
             maps.put(normalizeKey(mapName), map);
         }
+
+        rebuildZoneIndex();
     }
 
     public void save() {
@@ -98,6 +105,8 @@ public class MapManager {
         }
 
         maps.put(key, new Map(name));
+        version++;
+        rebuildZoneIndex();
         save();
         return true;
     }
@@ -105,6 +114,8 @@ public class MapManager {
     public boolean deleteMap(String name) {
         String key = normalizeKey(name);
         if (maps.remove(key) != null) {
+            version++;
+            rebuildZoneIndex();
             save();
             return true;
         }
@@ -119,6 +130,17 @@ public class MapManager {
         return Collections.unmodifiableCollection(maps.values());
     }
 
+    /**
+     * Versione dell'elenco delle mappe: cambia a ogni reload, creazione o eliminazione.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public ZoneIndex getZoneIndex() {
+        return zoneIndex;
+    }
+
     public List<String> getMapNames() {
         List<String> names = new ArrayList<>();
         for (Map map : maps.values()) {
@@ -135,6 +157,7 @@ public class MapManager {
         }
 
         map.setStart(new MapPoint(location, radius));
+        rebuildZoneIndex();
         save();
     }
 
@@ -146,9 +169,14 @@ public class MapManager {
         }
 
         map.setEnd(new MapPoint(location, radius));
+        rebuildZoneIndex();
         save();
     }
 
+    private void rebuildZoneIndex() {
+        zoneIndex = ZoneIndex.build(maps.values());
+    }
+
     private static String normalizeKey(String key) {
         return key.toLowerCase(Locale.ROOT);
     }
@@ -13,6 +13,11 @@ public class MapPoint {
 
     private final Location location;
     private final double radius;
+    private final int worldId;
+    private final double x;
+    private final double y;
+    private final double z;
+    private final double radiusSquared;
 
     public MapPoint(Location location, double radius) {
         if (location == null) {
@@ -20,6 +25,12 @@ public class MapPoint {
         }
         this.location = location.clone();
         this.radius = Math.max(radius, 0.0D);
+        this.worldId = WorldIds.of(location.getWorld());
+        this.x = location.getX();
+        this.y = location.getY();
+        this.z = location.getZ();
+        double effectiveRadius = getEffectiveRadius();
+        this.radiusSquared = effectiveRadius * effectiveRadius;
     }
 
     public Location getLocation() {
@@ -34,25 +45,95 @@ public class MapPoint {
         return radius > 0.0D ? radius : DEFAULT_POINT_RADIUS;
     }
 
+    public int getWorldId() {
+        return worldId;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
     public boolean contains(Location other) {
         if (other == null) {
             return false;
         }
 
-        World world = location.getWorld();
         World otherWorld = other.getWorld();
-        if (world == null || otherWorld == null || !world.equals(otherWorld)) {
+        if (otherWorld == null) {
             return false;
         }
+        return contains(WorldIds.of(otherWorld), other.getX(), other.getY(), other.getZ());
+    }
 
-        double dx = other.getX() - location.getX();
-        double dz = other.getZ() - location.getZ();
-        double limit = getEffectiveRadius();
-        if ((dx * dx + dz * dz) > limit * limit) {
+    public boolean contains(int otherWorldId, double otherX, double otherY, double otherZ) {
+        if (worldId == WorldIds.NONE || otherWorldId != worldId) {
+            return false;
+        }
+
+        double dx = otherX - x;
+        double dz = otherZ - z;
+        if ((dx * dx + dz * dz) > radiusSquared) {
             return false;
         }
 
-        double dy = Math.abs(other.getY() - location.getY());
+        double dy = Math.abs(otherY - y);
         return dy <= VERTICAL_TOLERANCE;
     }
+
+    /**
+     * Calcola dove il segmento from→to entra nel cilindro dell'area.
+     *
+     * @return la frazione del segmento (0..1) nel punto di ingresso, oppure un valore negativo se non lo attraversa
+     */
+    public double segmentEntry(int segmentWorldId, double fromX, double fromY, double fromZ,
+                               double toX, double toY, double toZ) {
+        if (worldId == WorldIds.NONE || segmentWorldId != worldId) {
+            return -1.0D;
+        }
+
+        double limit = getEffectiveRadius();
+        if (Math.max(fromX, toX) < x - limit || Math.min(fromX, toX) > x + limit
+                || Math.max(fromZ, toZ) < z - limit || Math.min(fromZ, toZ) > z + limit
+                || Math.max(fromY, toY) < y - VERTICAL_TOLERANCE || Math.min(fromY, toY) > y + VERTICAL_TOLERANCE) {
+            return -1.0D;
+        }
+
+        double enter = 0.0D;
+        double exit = 1.0D;
+
+        double dy = toY - fromY;
+        if (dy != 0.0D) {
+            double first = (y - VERTICAL_TOLERANCE - fromY) / dy;
+            double second = (y + VERTICAL_TOLERANCE - fromY) / dy;
+            enter = Math.max(enter, Math.min(first, second));
+            exit = Math.min(exit, Math.max(first, second));
+        }
+
+        double dx = toX - fromX;
+        double dz = toZ - fromZ;
+        double offsetX = fromX - x;
+        double offsetZ = fromZ - z;
+        double a = dx * dx + dz * dz;
+        double c = offsetX * offsetX + offsetZ * offsetZ - radiusSquared;
+        if (a == 0.0D) {
+            if (c > 0.0D) {
+                return -1.0D;
+            }
+        } else {
+            double b = 2.0D * (offsetX * dx + offsetZ * dz);
+            double discriminant = b * b - 4.0D * a * c;
+            if (discriminant < 0.0D) {
+                return -1.0D;
+            }
+            double root = Math.sqrt(discriminant);
+            enter = Math.max(enter, (-b - root) / (2.0D * a));
+            exit = Math.min(exit, (-b + root) / (2.0D * a));
+        }
+
+        return enter <= exit ? enter : -1.0D;
+    }
 }
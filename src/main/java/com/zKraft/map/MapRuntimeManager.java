@@ -6,56 +6,109 @@ import org.bukkit.OfflinePlayer;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
 import org.bukkit.plugin.java.JavaPlugin;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
 
 import java.time.Duration;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Gestisce il timer di una mappa
  */
 public class MapRuntimeManager implements Listener {
 
-    private static final Pattern HEX_PATTERN = Pattern.compile("&#([0-9a-fA-F]{6})");
+    private static final int TITLE_CACHE_LIMIT = 256;
+    private static final double NO_ENTRY = -1.0D;
+    // Oltre questa distanza in un solo campione il movimento è trattato come un teletrasporto.
+    private static final double MAX_SWEEP_DISTANCE = 64.0D;
+    private static final long TICK_NANOS = 50_000_000L;
 
     private final JavaPlugin plugin;
     private final MapManager mapManager;
     private final StatsManager statsManager;
-    private final java.util.Map<UUID, PlayerSession> sessions = new HashMap<>();
-    private final java.util.Map<UUID, PlayerState> playerStates = new HashMap<>();
-    private final java.util.Map<UUID, PendingRun> pendingResumptions = new HashMap<>();
+    private final RuntimeScheduler scheduler;
+    // Concorrenti perché su Folia ogni giocatore viene aggiornato dal thread della propria regione.
+    private final java.util.Map<UUID, PlayerSession> sessions = new ConcurrentHashMap<>();
+    private final java.util.Map<UUID, PlayerState> playerStates = new ConcurrentHashMap<>();
+    private final java.util.Map<UUID, PendingRun> pendingResumptions = new ConcurrentHashMap<>();
+    private final java.util.Map<UUID, RuntimeScheduler.Task> playerTasks = new ConcurrentHashMap<>();
+    private final CountdownWheel<CountdownTask> countdowns = new CountdownWheel<>();
 
     private int countdownSeconds;
-    private String startMessage;
-    private String goMessage;
-    private String endMessage;
-    private String endChatMessage;
-    private String leaveSuccessMessage;
-    private String leaveNoActiveMessage;
-
-    private BukkitTask monitorTask;
+    private MessageTemplate startMessage = MessageTemplate.EMPTY;
+    private MessageTemplate goMessage = MessageTemplate.EMPTY;
+    private MessageTemplate endMessage = MessageTemplate.EMPTY;
+    private MessageTemplate endChatMessage = MessageTemplate.EMPTY;
+    private MessageTemplate leaveSuccessMessage = MessageTemplate.EMPTY;
+    private MessageTemplate leaveNoActiveMessage = MessageTemplate.EMPTY;
+    // Titoli già divisi, solo per i messaggi che non dipendono dal giocatore.
+    private final java.util.Map<String, TitleParts> titleCache = new ConcurrentHashMap<>();
+    private DetectionMode detectionMode = DetectionMode.POLLING;
+    private long sweepIntervalTicks;
+    private boolean adaptiveChecks;
+    private double maxSpeed;
+    private int maxSkipTicks;
+    private final RunClock clockOverride;
+    // Letto anche dai placeholder, fuori dal thread principale.
+    private volatile RunClock clock = WallRunClock.INSTANCE;
+
+    private RuntimeScheduler.Task monitorTask;
+    private RuntimeScheduler.Task countdownTask;
+    private volatile boolean started;
 
     public MapRuntimeManager(JavaPlugin plugin, MapManager mapManager, StatsManager statsManager) {
+        this(plugin, mapManager, statsManager, null);
+    }
+
+    /**
+     * @param clock orologio da usare al posto di quello scelto in config.yml, o {@code null}
+     */
+    public MapRuntimeManager(JavaPlugin plugin, MapManager mapManager, StatsManager statsManager, RunClock clock) {
         this.plugin = plugin;
         this.mapManager = mapManager;
         this.statsManager = statsManager;
+        this.clockOverride = clock;
+        this.scheduler = RuntimeScheduler.create(plugin);
 
         loadSettings(plugin.getConfig());
     }
 
     public void startup() {
-        if (monitorTask != null && !monitorTask.isCancelled()) {
+        if (started) {
+            return;
+        }
+
+        started = true;
+        clock.start();
+        countdownTask = scheduler.runTimer(() -> countdowns.advance(this::fireCountdowns), 1L, 1L);
+
+        if (scheduler.isRegionized()) {
+            for (Player player : plugin.getServer().getOnlinePlayers()) {
+                schedulePlayer(player);
+            }
             return;
         }
 
-        monitorTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::tickPlayers, 1L, 1L);
+        monitorTask = scheduler.runTimer(this::tickPlayers, 1L, monitorPeriod());
+    }
+
+    private long monitorPeriod() {
+        // In modalità eventi il loop resta solo come controllo di sicurezza (veicoli, movimenti non notificati).
+        return detectionMode == DetectionMode.EVENTS ? sweepIntervalTicks : 1L;
+    }
+
+    private void schedulePlayer(Player player) {
+        RuntimeScheduler.Task task = scheduler.runTimer(player, () -> tickPlayer(player), 1L, monitorPeriod());
+        RuntimeScheduler.Task previous = playerTasks.put(player.getUniqueId(), task);
+        if (previous != null) {
+            previous.cancel();
+        }
     }
 
     public void restoreSessions(List<StatsManager.OngoingRun> ongoingRuns) {
@@ -88,16 +141,13 @@ public class MapRuntimeManager implements Listener {
                 continue;
             }
 
-            if (!(session.isRunning() || session.isPaused())) {
-                continue;
-            }
-
-            Map map = session.getMap();
-            if (map == null || !map.isConfigured()) {
+            SessionState state = activeState(session, null);
+            if (state == null || !state.map().isConfigured()) {
                 continue;
             }
 
-            long elapsed = session.elapsedNanos();
+            Map map = state.map();
+            long elapsed = state.elapsedNanos(clock.nanoTime());
             UUID playerId = entry.getKey();
             statsManager.saveOngoingRun(map.getName(), playerId, resolvePlayerName(playerId), elapsed);
         }
@@ -123,32 +173,98 @@ public class MapRuntimeManager implements Listener {
         }
 
         countdownSeconds = Math.max(0, configuration.getInt("countdownSeconds", 0));
-        startMessage = configuration.getString("startMessage", "⏱ La corsa inizia tra {seconds}...");
-        goMessage = configuration.getString("goMessage", "🏁 GO!");
-        endMessage = configuration.getString("endMessage", "&aHai completato il percorso in {time}.");
-        endChatMessage = configuration.getString("endChatMessage", "&aHai completato il percorso in {time}.");
-        leaveSuccessMessage = configuration.getString("leaveSuccessMessage", "Hai interrotto correttamente la corsa.");
-        leaveNoActiveMessage = configuration.getString("leaveNoActiveMessage", "Non ci sono corse attive da interrompere.");
+        startMessage = compileMessage(configuration, "startMessage", "⏱ La corsa inizia tra {seconds}...");
+        goMessage = compileMessage(configuration, "goMessage", "🏁 GO!");
+        endMessage = compileMessage(configuration, "endMessage", "&aHai completato il percorso in {time}.");
+        endChatMessage = compileMessage(configuration, "endChatMessage", "&aHai completato il percorso in {time}.");
+        leaveSuccessMessage = compileMessage(configuration, "leaveSuccessMessage", "Hai interrotto correttamente la corsa.");
+        leaveNoActiveMessage = compileMessage(configuration, "leaveNoActiveMessage", "Non ci sono corse attive da interrompere.");
+        titleCache.clear();
+        detectionMode = DetectionMode.fromConfig(configuration.getString("detection.mode", "polling"));
+        sweepIntervalTicks = Math.max(1L, configuration.getLong("detection.sweep-interval-ticks", 20L));
+        adaptiveChecks = configuration.getBoolean("detection.adaptive.enabled", false);
+        maxSpeed = Math.max(0.1D, configuration.getDouble("detection.adaptive.max-speed", 5.0D));
+        maxSkipTicks = Math.max(0, configuration.getInt("detection.adaptive.max-skip-ticks", 40));
+        clock = clockOverride != null ? clockOverride : createClock(configuration);
+    }
+
+    private MessageTemplate compileMessage(FileConfiguration configuration, String key, String defaultValue) {
+        MessageTemplate template = MessageTemplate.compile(configuration.getString(key, defaultValue));
+        if (template.hasSplitColorCode()) {
+            plugin.getLogger().warning(key + ": un codice colore è attaccato a un placeholder e verrà mostrato così com'è; "
+                    + "i colori valgono solo nel testo fisso.");
+        }
+        return template;
+    }
+
+    private RunClock createClock(FileConfiguration configuration) {
+        String type = configuration.getString("timing.clock", "wall");
+        if (type != null && type.trim().equalsIgnoreCase("tick")) {
+            if (scheduler.isRegionized()) {
+                plugin.getLogger().warning("timing.clock: tick non è supportato su Folia, uso il tempo reale.");
+                return WallRunClock.INSTANCE;
+            }
+            return new TickRunClock(plugin, configuration.getBoolean("timing.sub-tick", true));
+        }
+        return WallRunClock.INSTANCE;
     }
 
     private void tickPlayers() {
         for (Player player : plugin.getServer().getOnlinePlayers()) {
-            UUID playerId = player.getUniqueId();
-            PlayerState state = playerStates.computeIfAbsent(playerId, id -> new PlayerState(player.getLocation()));
-            Location previous = state.getLastLocation();
-            Location current = player.getLocation();
+            tickPlayer(player);
+        }
+    }
+
+    private void tickPlayer(Player player) {
+        UUID playerId = player.getUniqueId();
+        PlayerState state = playerStates.get(playerId);
+        if (state == null) {
+            playerStates.put(playerId, new PlayerState(player, clock.nanoTime()));
+            return;
+        }
 
-            processPlayer(player, previous, current);
+        ZoneIndex index = mapManager.getZoneIndex();
+        if (state.skipTicks > 0 && state.skipIndex == index && !sessions.containsKey(playerId)) {
+            state.skipTicks--;
+            return;
+        }
 
-            state.update(current);
+        state.sample(player, clock.nanoTime());
+        processPlayer(player, state);
+        state.commit();
+
+        if (adaptiveChecks && detectionMode == DetectionMode.POLLING && !sessions.containsKey(playerId)
+                && !isFastMover(player)) {
+            state.skipTicks = computeSkipTicks(index, state);
+            state.skipIndex = index;
+        } else {
+            state.skipTicks = 0;
         }
     }
 
-    private void processPlayer(Player player, Location from, Location to) {
-        if (to == null) {
-            return;
+    /**
+     * Con elytra, tridente o su un veicolo la velocità non ha un limite affidabile: il giocatore viene controllato a ogni tick.
+     */
+    private static boolean isFastMover(Player player) {
+        return player.isGliding() || player.isRiptiding() || player.isInsideVehicle();
+    }
+
+    /**
+     * Quanti tick si possono saltare prima che il giocatore, alla velocità massima, possa raggiungere un'area.
+     * Si tiene un tick di margine, così l'ingresso avviene sempre tra due controlli consecutivi.
+     */
+    private int computeSkipTicks(ZoneIndex index, PlayerState state) {
+        if (maxSkipTicks <= 0) {
+            return 0;
         }
 
+        double reach = maxSpeed * (maxSkipTicks + 2);
+        double distance = index.distanceToNearestZone(state.worldId, state.x, state.z, reach);
+        int ticks = (int) (distance / maxSpeed) - 1;
+        return Math.max(0, Math.min(ticks, maxSkipTicks));
+    }
+
+    private void processPlayer(Player player, PlayerState state) {
         UUID playerId = player.getUniqueId();
         PlayerSession session = sessions.get(playerId);
 
@@ -159,7 +275,7 @@ public class MapRuntimeManager implements Listener {
         if (session != null && session.isCountingDown()) {
             Map map = session.getMap();
             MapPoint startPoint = map != null ? map.getStart() : null;
-            if (map == null || startPoint == null || !startPoint.contains(to)) {
+            if (map == null || startPoint == null || !startPoint.contains(state.worldId, state.x, state.y, state.z)) {
                 session.cancelCountdown(true);
                 player.resetTitle();
                 cleanupIfIdle(playerId, session);
@@ -168,27 +284,100 @@ public class MapRuntimeManager implements Listener {
         }
 
         if (session != null && session.isRunning()) {
-            handleRunningPlayer(player, session, from, to);
+            handleRunningPlayer(player, session, state);
             return;
         }
 
-        Map mapAtStart = findMapForStart(from, to);
+        Map mapAtStart = findMapForStart(state);
         if (mapAtStart != null && mapAtStart.isConfigured()) {
             if (session == null) {
                 session = new PlayerSession();
                 sessions.put(playerId, session);
             }
-            startCountdown(player, mapAtStart, session);
+            long enteredNanos = crossingNanos(state, findEntry(state, mapAtStart.getStart()));
+            startCountdown(player, mapAtStart, session, enteredNanos);
         }
     }
 
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        if (detectionMode != DetectionMode.EVENTS) {
+            return;
+        }
+
+        Location from = event.getFrom();
+        Location to = event.getTo();
+        if (to == null || !hasChangedPosition(from, to)) {
+            return;
+        }
+
+        handleMovement(event.getPlayer(), to);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+        if (event.getTo() == null) {
+            return;
+        }
+
+        PlayerState state = playerStates.get(event.getPlayer().getUniqueId());
+        if (state != null) {
+            state.markTeleported();
+        }
+
+        if (detectionMode == DetectionMode.EVENTS) {
+            handleMovement(event.getPlayer(), event.getTo());
+        }
+    }
+
+    private void handleMovement(Player player, Location to) {
+        UUID playerId = player.getUniqueId();
+        PlayerState state = playerStates.get(playerId);
+        if (state == null) {
+            playerStates.put(playerId, new PlayerState(to, clock.nanoTime()));
+            return;
+        }
+
+        state.sample(to, clock.nanoTime());
+        if (sessions.containsKey(playerId) || isNearZone(state)) {
+            processPlayer(player, state);
+        }
+        state.commit();
+    }
+
+    private boolean hasChangedPosition(Location from, Location to) {
+        if (from == null || from.getWorld() != to.getWorld()) {
+            return true;
+        }
+        return from.getX() != to.getX() || from.getY() != to.getY() || from.getZ() != to.getZ();
+    }
+
+    private boolean isNearZone(PlayerState state) {
+        ZoneIndex index = mapManager.getZoneIndex();
+        boolean sweep = state.canSweep();
+        int maxCellX = ZoneIndex.toCell(sweep ? Math.max(state.lastX, state.x) : state.x);
+        int maxCellZ = ZoneIndex.toCell(sweep ? Math.max(state.lastZ, state.z) : state.z);
+        for (int cellX = ZoneIndex.toCell(sweep ? Math.min(state.lastX, state.x) : state.x); cellX <= maxCellX; cellX++) {
+            for (int cellZ = ZoneIndex.toCell(sweep ? Math.min(state.lastZ, state.z) : state.z); cellZ <= maxCellZ; cellZ++) {
+                if (index.zonesInCell(state.worldId, cellX, cellZ).length > 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
         PlayerSession session = sessions.get(event.getPlayer().getUniqueId());
         if (session != null) {
-            session.pause();
+            session.pause(clock.nanoTime());
         }
         playerStates.remove(event.getPlayer().getUniqueId());
+        RuntimeScheduler.Task task = playerTasks.remove(event.getPlayer().getUniqueId());
+        if (task != null) {
+            task.cancel();
+        }
     }
 
     @EventHandler
@@ -196,9 +385,12 @@ public class MapRuntimeManager implements Listener {
         Player player = event.getPlayer();
         PlayerSession session = sessions.get(player.getUniqueId());
         if (session != null && session.isPaused()) {
-            session.resume();
+            session.resume(clock.nanoTime());
+        }
+        playerStates.put(player.getUniqueId(), new PlayerState(player, clock.nanoTime()));
+        if (started && scheduler.isRegionized()) {
+            schedulePlayer(player);
         }
-        playerStates.put(player.getUniqueId(), new PlayerState(player.getLocation()));
 
         PendingRun pending = pendingResumptions.remove(player.getUniqueId());
         if (pending != null) {
@@ -210,10 +402,20 @@ public class MapRuntimeManager implements Listener {
     }
 
     public void shutdown() {
+        started = false;
         if (monitorTask != null) {
             monitorTask.cancel();
             monitorTask = null;
         }
+        if (countdownTask != null) {
+            countdownTask.cancel();
+            countdownTask = null;
+        }
+        for (RuntimeScheduler.Task task : playerTasks.values()) {
+            task.cancel();
+        }
+        playerTasks.clear();
+        clock.stop();
 
         for (java.util.Map.Entry<UUID, PlayerSession> entry : sessions.entrySet()) {
             PlayerSession session = entry.getValue();
@@ -226,6 +428,7 @@ public class MapRuntimeManager implements Listener {
         sessions.clear();
         playerStates.clear();
         pendingResumptions.clear();
+        countdowns.clear();
     }
 
     public Map leaveTimer(Player player) {
@@ -242,17 +445,11 @@ public class MapRuntimeManager implements Listener {
     }
 
     public String renderLeaveSuccessMessage(Player player, Map map) {
-        java.util.Map<String, String> values = new java.util.HashMap<>();
-        values.put("player", player.getName());
-        values.put("map", map != null ? map.getName() : "");
-        return formatMessage(leaveSuccessMessage, values);
+        return leaveSuccessMessage.render(null, map != null ? map.getName() : "", player.getName(), null);
     }
 
     public String renderLeaveNoActiveMessage(Player player) {
-        java.util.Map<String, String> values = new java.util.HashMap<>();
-        values.put("player", player.getName());
-        values.put("map", "");
-        return formatMessage(leaveNoActiveMessage, values);
+        return leaveNoActiveMessage.render(null, "", player.getName(), null);
     }
 
     public void resetPlayerSession(UUID playerId) {
@@ -298,30 +495,54 @@ public class MapRuntimeManager implements Listener {
         }
     }
 
+    /**
+     * Può essere chiamato da qualsiasi thread: legge lo stato pubblicato dalla sessione, senza lock.
+     */
     public OptionalLong getLiveTime(UUID playerId, String mapName) {
-        if (playerId == null) {
+        SessionState state = liveState(playerId, mapName);
+        if (state == null) {
             return OptionalLong.empty();
         }
+        return OptionalLong.of(state.elapsedNanos(clock.nanoTime()));
+    }
 
-        PlayerSession session = sessions.get(playerId);
-        if (session == null) {
-            return OptionalLong.empty();
+    /**
+     * Tempo live già formattato, oppure {@code null} se il giocatore non ha una corsa attiva sulla mappa.
+     * Se il millisecondo non è cambiato dall'ultima richiesta viene restituita la stessa stringa.
+     */
+    public String getLiveTimeFormatted(UUID playerId, String mapName) {
+        PlayerSession session = playerId != null ? sessions.get(playerId) : null;
+        SessionState state = session != null ? activeState(session, mapName) : null;
+        if (state == null) {
+            return null;
         }
+        return session.liveTime.format(state.elapsedNanos(clock.nanoTime()));
+    }
 
-        Map map = session.getMap();
-        if (map == null) {
-            return OptionalLong.empty();
+    private SessionState liveState(UUID playerId, String mapName) {
+        if (playerId == null) {
+            return null;
         }
 
-        if (mapName != null && !map.getName().equalsIgnoreCase(mapName)) {
-            return OptionalLong.empty();
+        PlayerSession session = sessions.get(playerId);
+        return session != null ? activeState(session, mapName) : null;
+    }
+
+    /**
+     * Stato della sessione se ha una corsa in corso o in pausa sulla mappa indicata ({@code null} per qualsiasi mappa).
+     */
+    private static SessionState activeState(PlayerSession session, String mapName) {
+        SessionState state = session.state();
+        Map map = state.map();
+        if (map == null || !state.isActive()) {
+            return null;
         }
 
-        if (!(session.isRunning() || session.isPaused())) {
-            return OptionalLong.empty();
+        if (mapName != null && !map.getName().equalsIgnoreCase(mapName)) {
+            return null;
         }
 
-        return OptionalLong.of(session.elapsedNanos());
+        return state;
     }
 
     private void queueResume(UUID playerId, Map map, long elapsedNanos) {
@@ -346,8 +567,8 @@ public class MapRuntimeManager implements Listener {
 
         PlayerSession session = sessions.computeIfAbsent(player.getUniqueId(), id -> new PlayerSession());
         session.reset();
-        session.resumeFrom(map, Math.max(0L, elapsedNanos));
-        playerStates.put(player.getUniqueId(), new PlayerState(player.getLocation()));
+        session.resumeFrom(map, Math.max(0L, elapsedNanos), clock.nanoTime());
+        playerStates.put(player.getUniqueId(), new PlayerState(player, clock.nanoTime()));
         pendingResumptions.remove(player.getUniqueId());
 
         if (notify) {
@@ -364,7 +585,7 @@ public class MapRuntimeManager implements Listener {
         player.sendMessage("Ultima corsa su \"" + map.getName() + "\" ripristinata da " + formatted + ".");
     }
 
-    private void handleRunningPlayer(Player player, PlayerSession session, Location from, Location to) {
+    private void handleRunningPlayer(Player player, PlayerSession session, PlayerState state) {
         Map map = session.getMap();
         if (map == null || !map.isConfigured()) {
             session.reset();
@@ -372,19 +593,35 @@ public class MapRuntimeManager implements Listener {
             return;
         }
 
-        MapPoint startPoint = map.getStart();
-        if (startPoint != null && isEnteringArea(from, to, startPoint)) {
-            startCountdown(player, map, session);
+        // Se nello stesso movimento attraversa sia start che end, vale l'area incontrata per prima.
+        double startEntry = findEntry(state, map.getStart());
+        double endEntry = findEntry(state, map.getEnd());
+        if (startEntry >= 0.0D && (endEntry < 0.0D || startEntry <= endEntry)) {
+            startCountdown(player, map, session, crossingNanos(state, startEntry));
             return;
         }
 
-        MapPoint endPoint = map.getEnd();
-        if (endPoint != null && isEnteringArea(from, to, endPoint)) {
-            finishRun(player, session, map);
+        if (endEntry >= 0.0D) {
+            finishRun(player, session, map, crossingNanos(state, endEntry));
         }
     }
 
-    private void startCountdown(Player player, Map map, PlayerSession session) {
+    /**
+     * Interpola l'istante in cui il giocatore ha attraversato il bordo dell'area tra i due campioni.
+     */
+    private long crossingNanos(PlayerState state, double entry) {
+        long window = state.nanos - state.lastNanos;
+        if (detectionMode == DetectionMode.EVENTS) {
+            // Un evento di movimento copre al massimo un tick: il campione precedente può essere vecchio se era fermo.
+            window = Math.min(window, TICK_NANOS);
+        }
+        if (window <= 0L || entry >= 1.0D) {
+            return state.nanos;
+        }
+        return state.nanos - (long) (window * (1.0D - Math.max(0.0D, entry)));
+    }
+
+    private void startCountdown(Player player, Map map, PlayerSession session, long enteredNanos) {
         MapPoint startPoint = map.getStart();
         if (startPoint == null) {
             return;
@@ -393,18 +630,32 @@ public class MapRuntimeManager implements Listener {
         session.prepareForCountdown(map);
 
         if (countdownSeconds <= 0) {
-            session.startRun();
+            session.startRun(enteredNanos);
             sendGoTitle(player, map);
             return;
         }
 
         CountdownTask task = new CountdownTask(player, session, map, countdownSeconds);
         session.setCountdown(task);
-        task.runTaskTimer(plugin, 0L, 20L);
+        countdowns.schedule(task, 1L);
+    }
+
+    /**
+     * Riceve in un solo passaggio tutti i countdown scaduti in questo tick.
+     */
+    private void fireCountdowns(List<CountdownTask> batch) {
+        for (CountdownTask task : batch) {
+            if (scheduler.isRegionized()) {
+                // Posizione e titoli del giocatore vanno gestiti sul thread della sua regione.
+                scheduler.runFor(task.player, task::tick);
+            } else {
+                task.tick();
+            }
+        }
     }
 
-    private void finishRun(Player player, PlayerSession session, Map map) {
-        long nanos = session.elapsedNanos();
+    private void finishRun(Player player, PlayerSession session, Map map, long finishNanos) {
+        long nanos = session.finishAt(finishNanos);
         session.reset();
         cleanupIfIdle(player.getUniqueId(), session);
 
@@ -412,116 +663,100 @@ public class MapRuntimeManager implements Listener {
             return;
         }
 
+        // Chiamato dal thread della regione del giocatore: StatsManager mette solo in coda la scrittura,
+        // che viene eseguita sul thread globale (YAML e binario) o sul thread IO (SQL).
         statsManager.recordRun(map, player, Duration.ofNanos(nanos));
 
         sendFinishMessages(player, map, nanos);
     }
 
-    private Map findMapForStart(Location from, Location to) {
-        for (Map map : mapManager.getMaps()) {
-            if (!map.isConfigured()) {
-                continue;
-            }
-
-            MapPoint startPoint = map.getStart();
-            if (startPoint != null && isEnteringArea(from, to, startPoint)) {
-                return map;
+    private Map findMapForStart(PlayerState state) {
+        ZoneIndex index = mapManager.getZoneIndex();
+        boolean sweep = state.canSweep();
+        int minCellX = ZoneIndex.toCell(sweep ? Math.min(state.lastX, state.x) : state.x);
+        int maxCellX = ZoneIndex.toCell(sweep ? Math.max(state.lastX, state.x) : state.x);
+        int minCellZ = ZoneIndex.toCell(sweep ? Math.min(state.lastZ, state.z) : state.z);
+        int maxCellZ = ZoneIndex.toCell(sweep ? Math.max(state.lastZ, state.z) : state.z);
+
+        Map best = null;
+        double bestEntry = NO_ENTRY;
+        for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+                for (ZoneIndex.Zone zone : index.zonesInCell(state.worldId, cellX, cellZ)) {
+                    if (!zone.start() || !zone.map().isConfigured()) {
+                        continue;
+                    }
+
+                    double entry = findEntry(state, zone.point());
+                    if (entry >= 0.0D && (best == null || entry < bestEntry)) {
+                        best = zone.map();
+                        bestEntry = entry;
+                    }
+                }
             }
         }
-        return null;
+        return best;
     }
 
-    private boolean isEnteringArea(Location from, Location to, MapPoint point) {
-        if (point == null || to == null) {
-            return false;
+    /**
+     * Restituisce la frazione del movimento in cui il giocatore entra nell'area, o un valore negativo se non vi entra.
+     */
+    private double findEntry(PlayerState state, MapPoint point) {
+        if (point == null || point.contains(state.lastWorldId, state.lastX, state.lastY, state.lastZ)) {
+            return NO_ENTRY;
         }
 
-        boolean wasInside = point.contains(from);
-        boolean isInside = point.contains(to);
-        return !wasInside && isInside;
+        if (state.canSweep()) {
+            return point.segmentEntry(state.worldId, state.lastX, state.lastY, state.lastZ, state.x, state.y, state.z);
+        }
+        return point.contains(state.worldId, state.x, state.y, state.z) ? 1.0D : NO_ENTRY;
     }
 
     private void sendCountdownTitle(Player player, Map map, int secondsRemaining) {
-        String message = formatMessage(startMessage, java.util.Map.of(
-                "seconds", Integer.toString(secondsRemaining),
-                "map", map.getName(),
-                "player", player.getName()
-        ));
-        sendWrappedTitle(player, message, 0, 20, 0);
+        String message = startMessage.render(Integer.toString(secondsRemaining), map.getName(), player.getName(), null);
+        sendWrappedTitle(player, startMessage, message, 0, 20, 0);
     }
 
     private void sendGoTitle(Player player, Map map) {
-        String message = formatMessage(goMessage, java.util.Map.of(
-                "map", map.getName(),
-                "player", player.getName()
-        ));
-        sendWrappedTitle(player, message, 0, 20, 10);
+        String message = goMessage.render(null, map.getName(), player.getName(), null);
+        sendWrappedTitle(player, goMessage, message, 0, 20, 10);
     }
 
     private void sendFinishMessages(Player player, Map map, long nanos) {
         String formattedTime = TimeFormatter.format(nanos);
-        String title = formatMessage(endMessage, java.util.Map.of(
-                "time", formattedTime,
-                "map", map.getName(),
-                "player", player.getName()
-        ));
-        sendWrappedTitle(player, title, 10, 40, 10);
-
-        String chat = formatMessage(endChatMessage, java.util.Map.of(
-                "time", formattedTime,
-                "map", map.getName(),
-                "player", player.getName()
-        ));
+        String title = endMessage.render(null, map.getName(), player.getName(), formattedTime);
+        sendWrappedTitle(player, endMessage, title, 10, 40, 10);
+
+        String chat = endChatMessage.render(null, map.getName(), player.getName(), formattedTime);
         if (!chat.isEmpty()) {
             player.sendMessage(chat);
         }
     }
 
-    private String formatMessage(String template, java.util.Map<String, String> values) {
-        if (template == null || template.isEmpty()) {
-            return "";
-        }
-
-        String result = template;
-        for (java.util.Map.Entry<String, String> entry : values.entrySet()) {
-            result = result.replace("{" + entry.getKey() + "}", entry.getValue());
-        }
-        return colorize(result);
-    }
-
-    private String colorize(String input) {
-        if (input == null || input.isEmpty()) {
-            return "";
-        }
-
-        Matcher matcher = HEX_PATTERN.matcher(input);
-        StringBuffer buffer = new StringBuffer();
-        while (matcher.find()) {
-            String color = matcher.group(1);
-            net.md_5.bungee.api.ChatColor chatColor;
-            try {
-                chatColor = net.md_5.bungee.api.ChatColor.of("#" + color);
-            } catch (IllegalArgumentException exception) {
-                chatColor = net.md_5.bungee.api.ChatColor.WHITE;
-            }
-            matcher.appendReplacement(buffer, chatColor.toString());
-        }
-        matcher.appendTail(buffer);
-        return ChatColor.translateAlternateColorCodes('&', buffer.toString());
-    }
-
     private void cleanupIfIdle(UUID playerId, PlayerSession session) {
         if (session.isIdle()) {
             sessions.remove(playerId);
         }
     }
 
-    private void sendWrappedTitle(Player player, String message, int fadeIn, int stay, int fadeOut) {
+    private void sendWrappedTitle(Player player, MessageTemplate template, String message, int fadeIn, int stay, int fadeOut) {
         if (message == null || message.isEmpty()) {
             return;
         }
 
-        TitleParts parts = splitForTitle(message);
+        TitleParts parts;
+        if (template.isPlayerSpecific()) {
+            parts = splitForTitle(message);
+        } else {
+            parts = titleCache.get(message);
+            if (parts == null) {
+                if (titleCache.size() >= TITLE_CACHE_LIMIT) {
+                    titleCache.clear();
+                }
+                parts = splitForTitle(message);
+                titleCache.put(message, parts);
+            }
+        }
         if (parts.isEmpty()) {
             return;
         }
@@ -604,12 +839,12 @@ public class MapRuntimeManager implements Listener {
         }
     }
 
-    private class CountdownTask extends BukkitRunnable {
+    private class CountdownTask extends CountdownWheel.Timer {
         private final Player player;
         private final PlayerSession session;
         private final Map map;
         private int secondsRemaining;
-        private boolean stopped;
+        private volatile boolean stopped;
 
         CountdownTask(Player player, PlayerSession session, Map map, int seconds) {
             this.player = player;
@@ -619,7 +854,11 @@ public class MapRuntimeManager implements Listener {
         }
 
         @Override
-        public void run() {
+        protected boolean isCancelled() {
+            return stopped;
+        }
+
+        void tick() {
             if (stopped) {
                 return;
             }
@@ -637,7 +876,7 @@ public class MapRuntimeManager implements Listener {
             }
 
             if (secondsRemaining <= 0) {
-                session.startRun();
+                session.startRun(clock.nanoTime());
                 sendGoTitle(player, map);
                 stop(false);
                 return;
@@ -645,6 +884,7 @@ public class MapRuntimeManager implements Listener {
 
             sendCountdownTitle(player, map, secondsRemaining);
             secondsRemaining--;
+            countdowns.reschedule(this, 20L);
         }
 
         void stop(boolean clearState) {
@@ -652,47 +892,139 @@ public class MapRuntimeManager implements Listener {
                 return;
             }
             stopped = true;
-            super.cancel();
             session.onCountdownStopped(clearState);
         }
     }
 
+    /**
+     * Ultima posizione nota del giocatore e campione corrente, in forma primitiva per non allocare a ogni tick.
+     */
     private static class PlayerState {
-        private Location lastLocation;
+        private final Location scratch = new Location(null, 0.0D, 0.0D, 0.0D);
+        private int lastWorldId = WorldIds.NONE;
+        private double lastX;
+        private double lastY;
+        private double lastZ;
+        private int worldId = WorldIds.NONE;
+        private double x;
+        private double y;
+        private double z;
+        private long lastNanos;
+        private long nanos;
+        private boolean teleported;
+        private int skipTicks;
+        private ZoneIndex skipIndex;
+
+        PlayerState(Player player, long now) {
+            sample(player, now);
+            commit();
+        }
+
+        PlayerState(Location location, long now) {
+            sample(location, now);
+            commit();
+        }
+
+        void sample(Player player, long now) {
+            sample(player.getLocation(scratch), now);
+        }
+
+        void sample(Location location, long now) {
+            nanos = now;
+            worldId = WorldIds.of(location.getWorld());
+            x = location.getX();
+            y = location.getY();
+            z = location.getZ();
+        }
+
+        void commit() {
+            lastWorldId = worldId;
+            lastX = x;
+            lastY = y;
+            lastZ = z;
+            lastNanos = nanos;
+            teleported = false;
+        }
+
+        void markTeleported() {
+            teleported = true;
+            skipTicks = 0;
+        }
+
+        /**
+         * Il movimento va controllato come segmento solo se è continuo: stesso mondo, niente teletrasporti o salti enormi.
+         */
+        boolean canSweep() {
+            if (teleported || worldId == WorldIds.NONE || worldId != lastWorldId) {
+                return false;
+            }
 
-        PlayerState(Location location) {
-            update(location);
+            double dx = x - lastX;
+            double dy = y - lastY;
+            double dz = z - lastZ;
+            return dx * dx + dy * dy + dz * dz <= MAX_SWEEP_DISTANCE * MAX_SWEEP_DISTANCE;
         }
+    }
 
-        Location getLastLocation() {
-            return lastLocation;
-        }
+    private record PendingRun(String mapName, long elapsedNanos) {
+    }
+
+    private enum DetectionMode {
+        POLLING,
+        EVENTS;
 
-        void update(Location location) {
-            lastLocation = location == null ? null : location.clone();
+        static DetectionMode fromConfig(String value) {
+            if (value != null && value.trim().equalsIgnoreCase("events")) {
+                return EVENTS;
+            }
+            return POLLING;
         }
     }
 
-    private record PendingRun(String mapName, long elapsedNanos) {
+    /**
+     * Fase del cronometro di una sessione.
+     */
+    enum Phase {
+        STOPPED,
+        RUNNING,
+        PAUSED
     }
 
+    /**
+     * Stato immutabile di una sessione, sostituito in blocco a ogni transizione: chi lo legge da un altro thread
+     * vede sempre mappa, fase e tempi coerenti tra loro.
+     */
+    record SessionState(Map map, Phase phase, long runStartNanos, long accumulatedNanos) {
+        static final SessionState EMPTY = new SessionState(null, Phase.STOPPED, 0L, 0L);
+
+        boolean isActive() {
+            return phase != Phase.STOPPED;
+        }
+
+        long elapsedNanos(long now) {
+            long total = accumulatedNanos;
+            if (phase == Phase.RUNNING) {
+                total += Math.max(now - runStartNanos, 0L);
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Le transizioni avvengono sul thread del giocatore; il countdown resta confinato lì,
+     * mentre lo stato del cronometro è pubblicato in {@link #state} per i lettori degli altri thread.
+     */
     private static class PlayerSession {
-        private Map map;
-        private boolean running;
-        private boolean paused;
-        private long runStartNanos;
-        private long accumulatedNanos;
+        private volatile SessionState state = SessionState.EMPTY;
         private CountdownTask countdown;
+        // Ultimo tempo live formattato per i placeholder.
+        private final TimeFormatter.Cache liveTime = new TimeFormatter.Cache();
 
         void prepareForCountdown(Map map) {
             if (countdown != null) {
                 countdown.stop(true);
             }
-            this.map = map;
-            this.running = false;
-            this.paused = false;
-            this.accumulatedNanos = 0L;
-            this.runStartNanos = 0L;
+            state = new SessionState(map, Phase.STOPPED, 0L, 0L);
             this.countdown = null;
         }
 
@@ -703,21 +1035,31 @@ public class MapRuntimeManager implements Listener {
             this.countdown = countdown;
         }
 
-        void startRun() {
-            running = true;
-            paused = false;
-            accumulatedNanos = 0L;
-            runStartNanos = System.nanoTime();
+        void startRun(long startNanos) {
+            state = new SessionState(state.map(), Phase.RUNNING, startNanos, 0L);
             countdown = null;
         }
 
-        void pause() {
-            if (running) {
-                accumulatedNanos += Math.max(System.nanoTime() - runStartNanos, 0L);
-                running = false;
-                paused = map != null;
-            } else {
-                paused = false;
+        /**
+         * Chiude la corsa all'istante indicato e restituisce il tempo totale registrato.
+         */
+        long finishAt(long finishNanos) {
+            SessionState current = state;
+            if (current.phase() == Phase.RUNNING) {
+                current = new SessionState(current.map(), Phase.STOPPED, current.runStartNanos(),
+                        current.elapsedNanos(finishNanos));
+                state = current;
+            }
+            return current.accumulatedNanos();
+        }
+
+        void pause(long now) {
+            SessionState current = state;
+            if (current.phase() == Phase.RUNNING) {
+                state = new SessionState(current.map(), current.map() != null ? Phase.PAUSED : Phase.STOPPED,
+                        current.runStartNanos(), current.elapsedNanos(now));
+            } else if (current.phase() == Phase.PAUSED) {
+                state = new SessionState(current.map(), Phase.STOPPED, current.runStartNanos(), current.accumulatedNanos());
             }
 
             if (countdown != null) {
@@ -726,32 +1068,23 @@ public class MapRuntimeManager implements Listener {
             }
         }
 
-        void resume() {
-            if (map != null && paused) {
-                running = true;
-                runStartNanos = System.nanoTime();
-                paused = false;
+        void resume(long now) {
+            SessionState current = state;
+            if (current.map() != null && current.phase() == Phase.PAUSED) {
+                state = new SessionState(current.map(), Phase.RUNNING, now, current.accumulatedNanos());
             }
         }
 
-        void resumeFrom(Map map, long elapsedNanos) {
+        void resumeFrom(Map map, long elapsedNanos, long now) {
             if (countdown != null) {
                 countdown.stop(true);
                 countdown = null;
             }
-            this.map = map;
-            running = true;
-            paused = false;
-            accumulatedNanos = Math.max(0L, elapsedNanos);
-            runStartNanos = System.nanoTime();
+            state = new SessionState(map, Phase.RUNNING, now, Math.max(0L, elapsedNanos));
         }
 
-        long elapsedNanos() {
-            long total = accumulatedNanos;
-            if (running) {
-                total += Math.max(System.nanoTime() - runStartNanos, 0L);
-            }
-            return total;
+        long elapsedNanos(long now) {
+            return state.elapsedNanos(now);
         }
 
         void reset() {
@@ -759,11 +1092,7 @@ public class MapRuntimeManager implements Listener {
                 countdown.stop(true);
                 countdown = null;
             }
-            running = false;
-            paused = false;
-            accumulatedNanos = 0L;
-            runStartNanos = 0L;
-            map = null;
+            state = SessionState.EMPTY;
         }
 
         void cancelCountdown(boolean clearState) {
@@ -771,35 +1100,31 @@ public class MapRuntimeManager implements Listener {
                 countdown.stop(clearState);
                 countdown = null;
             } else if (clearState) {
-                running = false;
-                paused = false;
-                accumulatedNanos = 0L;
-                runStartNanos = 0L;
-                map = null;
+                state = SessionState.EMPTY;
             }
         }
 
         void onCountdownStopped(boolean clearState) {
             countdown = null;
             if (clearState) {
-                running = false;
-                paused = false;
-                accumulatedNanos = 0L;
-                runStartNanos = 0L;
-                map = null;
+                state = SessionState.EMPTY;
             }
         }
 
+        SessionState state() {
+            return state;
+        }
+
         Map getMap() {
-            return map;
+            return state.map();
         }
 
         boolean isRunning() {
-            return running;
+            return state.phase() == Phase.RUNNING;
         }
 
         boolean isPaused() {
-            return paused;
+            return state.phase() == Phase.PAUSED;
         }
 
         boolean isCountingDown() {
@@ -807,11 +1132,12 @@ public class MapRuntimeManager implements Listener {
         }
 
         boolean isIdle() {
-            return !running && !paused && countdown == null && map == null;
+            SessionState current = state;
+            return !current.isActive() && countdown == null && current.map() == null;
         }
 
         boolean hasActivity() {
-            return running || paused || countdown != null;
+            return state.isActive() || countdown != null;
         }
     }
 }
@@ -0,0 +1,1029 @@
+package com.zKraft.map;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+
+/**
+ * Statistiche salvate in un file binario mappato in memoria: record di dimensione fissa aggiornati sul posto.
+ * In memoria restano solo gli indici per mappa (tabella hash e ordine di classifica su array di int).
+ * Le scritture arrivano dal thread principale, le letture anche dai placeholder su altri thread:
+ * indici e buffer sono protetti da un lock di lettura/scrittura.
+ */
+public class MappedStatsStorage implements StatsStorage {
+
+    private static final int MAGIC = 0x5A435354;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int HEADER_SLOT_COUNT = 8;
+
+    // Record: mapId (int), tipo (int), uuid msb (long), uuid lsb (long), nanos (long).
+    private static final int RECORD_SIZE = 32;
+    private static final int FIELD_MAP = 0;
+    private static final int FIELD_KIND = 4;
+    private static final int FIELD_MSB = 8;
+    private static final int FIELD_LSB = 16;
+    private static final int FIELD_NANOS = 24;
+
+    private static final int KIND_FREE = 0;
+    private static final int KIND_TIME = 1;
+    private static final int KIND_ONGOING = 2;
+    private static final int KIND_DELETED_FINISHED = 3;
+    private static final int KIND_DELETED_UNFINISHED = 4;
+
+    private static final int INITIAL_SLOTS = 2048;
+
+    // players.dat: intestazione (magic, versione) seguita da record con checksum.
+    private static final int PLAYERS_MAGIC = 0x5A43504E;
+    private static final int PLAYERS_VERSION = 2;
+    private static final int PLAYERS_HEADER_SIZE = 8;
+    // UUID (16 byte) e lunghezza del nome (2 byte).
+    private static final int PLAYER_FIXED_SIZE = 18;
+
+    private final JavaPlugin plugin;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final File folder;
+    private final File recordsFile;
+    private final File mapsFile;
+    private final File playersFile;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int slotCount;
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+
+    private final java.util.Map<String, Integer> mapIds = new HashMap<>();
+    private final List<String> mapKeys = new ArrayList<>();
+    private final List<MapIndex> indexes = new ArrayList<>();
+    private final java.util.Map<Integer, java.util.Map<UUID, Integer>> ongoingSlots = new HashMap<>();
+    private final java.util.Map<DeletedKey, Integer> deletedSlots = new HashMap<>();
+
+    private final java.util.Map<UUID, String> playerNames = new HashMap<>();
+    private DataOutputStream playersOutput;
+    private FileOutputStream playersStream;
+
+    public MappedStatsStorage(JavaPlugin plugin) {
+        this.plugin = plugin;
+        this.folder = new File(plugin.getDataFolder(), "stats");
+        this.recordsFile = new File(folder, "stats.bin");
+        this.mapsFile = new File(folder, "maps.dat");
+        this.playersFile = new File(folder, "players.dat");
+    }
+
+    @Override
+    public void load() {
+        lock.writeLock().lock();
+        try {
+            close();
+            mapIds.clear();
+            mapKeys.clear();
+            indexes.clear();
+            ongoingSlots.clear();
+            deletedSlots.clear();
+            playerNames.clear();
+            freeCount = 0;
+
+            if (!folder.exists() && !folder.mkdirs()) {
+                plugin.getLogger().warning("Impossibile creare la cartella stats per zCrono");
+            }
+
+            boolean fresh = !recordsFile.exists();
+            try {
+                readMaps();
+                readPlayers();
+                openRecords();
+                openPlayersOutput();
+            } catch (IOException exception) {
+                plugin.getLogger().log(Level.SEVERE, "Impossibile aprire le statistiche binarie di zCrono", exception);
+                close();
+                return;
+            }
+
+            if (fresh) {
+                importFromYaml();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void save() {
+        lock.writeLock().lock();
+        try {
+            if (buffer == null) {
+                return;
+            }
+
+            buffer.force();
+            try {
+                playersOutput.flush();
+                playersStream.getFD().sync();
+            } catch (IOException exception) {
+                plugin.getLogger().log(Level.SEVERE, "Impossibile salvare i nomi dei giocatori", exception);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (buffer != null) {
+                buffer.force();
+                buffer = null;
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException exception) {
+                    plugin.getLogger().log(Level.SEVERE, "Impossibile chiudere stats.bin", exception);
+                }
+                channel = null;
+            }
+            if (playersOutput != null) {
+                try {
+                    playersOutput.close();
+                } catch (IOException exception) {
+                    plugin.getLogger().log(Level.SEVERE, "Impossibile chiudere players.dat", exception);
+                }
+                playersOutput = null;
+                playersStream = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void recordRun(String mapName, UUID playerId, String playerName, long nanos) {
+        lock.writeLock().lock();
+        try {
+            if (buffer == null || mapName == null || mapName.isEmpty() || playerId == null || nanos <= 0L) {
+                return;
+            }
+
+            int mapId = mapId(normalizeKey(mapName), true);
+            if (mapId < 0) {
+                return;
+            }
+
+            updatePlayerName(playerId, playerName);
+            removeOngoing(mapId, playerId, false);
+
+            long msb = playerId.getMostSignificantBits();
+            long lsb = playerId.getLeastSignificantBits();
+            MapIndex index = indexes.get(mapId);
+            int slot = index.find(msb, lsb);
+            if (slot < 0) {
+                slot = allocate(mapId, KIND_TIME, msb, lsb, nanos);
+                index.put(msb, lsb, slot);
+                index.insertOrdered(slot);
+                return;
+            }
+
+            if (nanos < nanos(slot)) {
+                index.removeOrdered(slot);
+                buffer.putLong(offset(slot) + FIELD_NANOS, nanos);
+                index.insertOrdered(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean resetPlayer(String mapName, UUID playerId) {
+        lock.writeLock().lock();
+        try {
+            if (buffer == null || mapName == null || playerId == null) {
+                return false;
+            }
+
+            int mapId = mapId(normalizeKey(mapName), false);
+            if (mapId < 0) {
+                return false;
+            }
+
+            boolean changed = false;
+            MapIndex index = indexes.get(mapId);
+            long msb = playerId.getMostSignificantBits();
+            long lsb = playerId.getLeastSignificantBits();
+            int slot = index.find(msb, lsb);
+            if (slot >= 0) {
+                storeDeleted(mapId, playerId, nanos(slot), true);
+                index.removeOrdered(slot);
+                index.remove(msb, lsb);
+                release(slot);
+                changed = true;
+            }
+
+            return removeOngoing(mapId, playerId, true) || changed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean resetMap(String mapName) {
+        lock.writeLock().lock();
+        try {
+            if (buffer == null || mapName == null) {
+                return false;
+            }
+
+            int mapId = mapId(normalizeKey(mapName), false);
+            if (mapId < 0) {
+                return false;
+            }
+
+            boolean changed = false;
+            MapIndex index = indexes.get(mapId);
+            for (int position = 0; position < index.size(); position++) {
+                int slot = index.slotAt(position);
+                storeDeleted(mapId, uuid(slot), nanos(slot), true);
+                release(slot);
+                changed = true;
+            }
+            indexes.set(mapId, new MapIndex());
+
+            java.util.Map<UUID, Integer> ongoing = ongoingSlots.remove(mapId);
+            if (ongoing != null) {
+                for (java.util.Map.Entry<UUID, Integer> entry : ongoing.entrySet()) {
+                    storeDeleted(mapId, entry.getKey(), nanos(entry.getValue()), false);
+                    release(entry.getValue());
+                    changed = true;
+                }
+            }
+            return changed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public OptionalLong getBestTime(String mapName, UUID playerId) {
+        lock.readLock().lock();
+        try {
+            int slot = timeSlot(mapName, playerId);
+            return slot >= 0 ? OptionalLong.of(nanos(slot)) : OptionalLong.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public OptionalInt getRank(String mapName, UUID playerId) {
+        lock.readLock().lock();
+        try {
+            int slot = timeSlot(mapName, playerId);
+            if (slot < 0) {
+                return OptionalInt.empty();
+            }
+
+            MapIndex index = indexes.get(buffer.getInt(offset(slot) + FIELD_MAP));
+            return OptionalInt.of(index.positionOf(slot) + 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<StatsManager.LeaderboardEntry> getTopEntry(String mapName, int position) {
+        lock.readLock().lock();
+        try {
+            if (buffer == null || mapName == null || position <= 0) {
+                return Optional.empty();
+            }
+
+            int mapId = mapId(normalizeKey(mapName), false);
+            if (mapId < 0 || position > indexes.get(mapId).size()) {
+                return Optional.empty();
+            }
+
+            return Optional.of(entry(indexes.get(mapId).slotAt(position - 1)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<StatsManager.LeaderboardEntry> getEntries(String mapName) {
+        lock.readLock().lock();
+        try {
+            if (buffer == null || mapName == null) {
+                return Collections.emptyList();
+            }
+
+            int mapId = mapId(normalizeKey(mapName), false);
+            if (mapId < 0 || indexes.get(mapId).size() == 0) {
+                return Collections.emptyList();
+            }
+
+            MapIndex index = indexes.get(mapId);
+            List<StatsManager.LeaderboardEntry> entries = new ArrayList<>(index.size());
+            for (int position = 0; position < index.size(); position++) {
+                entries.add(entry(index.slotAt(position)));
+            }
+            return Collections.unmodifiableList(entries);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void saveOngoingRun(String mapName, UUID playerId, String playerName, long nanos) {
+        lock.writeLock().lock();
+        try {
+            if (buffer == null || mapName == null || mapName.isEmpty() || playerId == null || nanos < 0L) {
+                return;
+            }
+
+            int mapId = mapId(normalizeKey(mapName), true);
+            if (mapId < 0) {
+                return;
+            }
+
+            updatePlayerName(playerId, playerName);
+            java.util.Map<UUID, Integer> runs = ongoingSlots.computeIfAbsent(mapId, unused -> new HashMap<>());
+            Integer slot = runs.get(playerId);
+            if (slot != null) {
+                buffer.putLong(offset(slot) + FIELD_NANOS, nanos);
+            } else {
+                runs.put(playerId, allocate(mapId, KIND_ONGOING, playerId.getMostSignificantBits(),
+                        playerId.getLeastSignificantBits(), nanos));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<StatsManager.OngoingRun> getAllOngoingRuns() {
+        lock.readLock().lock();
+        try {
+            if (ongoingSlots.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            List<StatsManager.OngoingRun> runs = new ArrayList<>();
+            for (java.util.Map.Entry<Integer, java.util.Map<UUID, Integer>> entry : ongoingSlots.entrySet()) {
+                String mapKey = mapKeys.get(entry.getKey());
+                for (java.util.Map.Entry<UUID, Integer> run : entry.getValue().entrySet()) {
+                    runs.add(new StatsManager.OngoingRun(mapKey, run.getKey(), resolveName(run.getKey()), nanos(run.getValue())));
+                }
+            }
+            return Collections.unmodifiableList(runs);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int timeSlot(String mapName, UUID playerId) {
+        if (buffer == null || mapName == null || playerId == null) {
+            return -1;
+        }
+
+        int mapId = mapId(normalizeKey(mapName), false);
+        if (mapId < 0) {
+            return -1;
+        }
+        return indexes.get(mapId).find(playerId.getMostSignificantBits(), playerId.getLeastSignificantBits());
+    }
+
+    private boolean removeOngoing(int mapId, UUID playerId, boolean keepDeleted) {
+        java.util.Map<UUID, Integer> runs = ongoingSlots.get(mapId);
+        if (runs == null) {
+            return false;
+        }
+
+        Integer slot = runs.remove(playerId);
+        if (slot == null) {
+            return false;
+        }
+
+        if (keepDeleted) {
+            storeDeleted(mapId, playerId, nanos(slot), false);
+        }
+        release(slot);
+        if (runs.isEmpty()) {
+            ongoingSlots.remove(mapId);
+        }
+        return true;
+    }
+
+    private void storeDeleted(int mapId, UUID playerId, long nanos, boolean finished) {
+        DeletedKey key = new DeletedKey(mapId, playerId, finished);
+        Integer slot = deletedSlots.get(key);
+        if (slot != null) {
+            buffer.putLong(offset(slot) + FIELD_NANOS, nanos);
+            return;
+        }
+
+        int kind = finished ? KIND_DELETED_FINISHED : KIND_DELETED_UNFINISHED;
+        deletedSlots.put(key, allocate(mapId, kind, playerId.getMostSignificantBits(), playerId.getLeastSignificantBits(), nanos));
+    }
+
+    private StatsManager.LeaderboardEntry entry(int slot) {
+        UUID playerId = uuid(slot);
+        return new StatsManager.LeaderboardEntry(playerId, resolveName(playerId), nanos(slot));
+    }
+
+    // --- file dei record ---
+
+    private void openRecords() throws IOException {
+        channel = FileChannel.open(recordsFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size < HEADER_SIZE) {
+            map(HEADER_SIZE + (long) INITIAL_SLOTS * RECORD_SIZE);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(HEADER_SLOT_COUNT, 0);
+            slotCount = 0;
+            return;
+        }
+
+        map(size);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("stats.bin non riconosciuto");
+        }
+
+        slotCount = buffer.getInt(HEADER_SLOT_COUNT);
+        long available = (size - HEADER_SIZE) / RECORD_SIZE;
+        if (slotCount < 0 || slotCount > available) {
+            throw new IOException("stats.bin danneggiato: " + slotCount + " record dichiarati");
+        }
+
+        for (int slot = 0; slot < slotCount; slot++) {
+            int base = offset(slot);
+            int mapId = buffer.getInt(base + FIELD_MAP);
+            int kind = buffer.getInt(base + FIELD_KIND);
+            if (kind == KIND_FREE || mapId < 0 || mapId >= mapKeys.size()) {
+                pushFree(slot);
+                continue;
+            }
+
+            long msb = buffer.getLong(base + FIELD_MSB);
+            long lsb = buffer.getLong(base + FIELD_LSB);
+            switch (kind) {
+                case KIND_TIME -> openTime(mapId, msb, lsb, slot);
+                case KIND_ONGOING -> ongoingSlots.computeIfAbsent(mapId, unused -> new HashMap<>()).put(new UUID(msb, lsb), slot);
+                case KIND_DELETED_FINISHED, KIND_DELETED_UNFINISHED ->
+                        deletedSlots.put(new DeletedKey(mapId, new UUID(msb, lsb), kind == KIND_DELETED_FINISHED), slot);
+                default -> pushFree(slot);
+            }
+        }
+
+        for (MapIndex index : indexes) {
+            index.sortAll();
+        }
+    }
+
+    /**
+     * Un giocatore con due record di tempo sulla stessa mappa (file scritto a metà) tiene il migliore;
+     * l'altro record viene liberato.
+     */
+    private void openTime(int mapId, long msb, long lsb, int slot) {
+        MapIndex index = indexes.get(mapId);
+        int existing = index.find(msb, lsb);
+        if (existing < 0) {
+            index.put(msb, lsb, slot);
+            return;
+        }
+
+        if (nanos(slot) < nanos(existing)) {
+            buffer.putLong(offset(existing) + FIELD_NANOS, nanos(slot));
+        }
+        release(slot);
+    }
+
+    private void map(long size) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0L, size);
+    }
+
+    private int allocate(int mapId, int kind, long msb, long lsb, long nanos) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            slot = slotCount;
+            ensureCapacity(slot + 1);
+            slotCount++;
+            buffer.putInt(HEADER_SLOT_COUNT, slotCount);
+        }
+
+        int base = offset(slot);
+        buffer.putInt(base + FIELD_MAP, mapId);
+        buffer.putLong(base + FIELD_MSB, msb);
+        buffer.putLong(base + FIELD_LSB, lsb);
+        buffer.putLong(base + FIELD_NANOS, nanos);
+        // Il tipo va scritto per ultimo: finché è KIND_FREE il record viene ignorato al caricamento.
+        buffer.putInt(base + FIELD_KIND, kind);
+        return slot;
+    }
+
+    private void release(int slot) {
+        buffer.putInt(offset(slot) + FIELD_KIND, KIND_FREE);
+        pushFree(slot);
+    }
+
+    private void pushFree(int slot) {
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private void ensureCapacity(int slots) {
+        long required = HEADER_SIZE + (long) slots * RECORD_SIZE;
+        if (required <= buffer.capacity()) {
+            return;
+        }
+
+        long size = Math.max(required, (long) buffer.capacity() * 2L);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("stats.bin ha raggiunto la dimensione massima");
+        }
+
+        try {
+            buffer.force();
+            map(size);
+        } catch (IOException exception) {
+            throw new IllegalStateException("Impossibile ingrandire stats.bin", exception);
+        }
+    }
+
+    private static int offset(int slot) {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+    private long nanos(int slot) {
+        return buffer.getLong(offset(slot) + FIELD_NANOS);
+    }
+
+    private UUID uuid(int slot) {
+        int base = offset(slot);
+        return new UUID(buffer.getLong(base + FIELD_MSB), buffer.getLong(base + FIELD_LSB));
+    }
+
+    /**
+     * Ordine di classifica tra un record e una chiave: tempo, poi UUID senza segno (come {@link Leaderboard#compareIds}).
+     */
+    private int compare(int slot, long nanos, long msb, long lsb) {
+        int base = offset(slot);
+        int comparison = Long.compare(buffer.getLong(base + FIELD_NANOS), nanos);
+        if (comparison != 0) {
+            return comparison;
+        }
+        comparison = Long.compareUnsigned(buffer.getLong(base + FIELD_MSB), msb);
+        return comparison != 0 ? comparison : Long.compareUnsigned(buffer.getLong(base + FIELD_LSB), lsb);
+    }
+
+    // --- mappe e nomi ---
+
+    private int mapId(String mapKey, boolean create) {
+        Integer id = mapIds.get(mapKey);
+        if (id != null) {
+            return id;
+        }
+        if (!create) {
+            return -1;
+        }
+
+        int newId = mapKeys.size();
+        try {
+            Files.writeString(mapsFile.toPath(), newId + "\t" + mapKey + "\n", StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+        } catch (IOException exception) {
+            plugin.getLogger().log(Level.SEVERE, "Impossibile registrare la mappa " + mapKey, exception);
+            return -1;
+        }
+
+        registerMap(newId, mapKey);
+        return newId;
+    }
+
+    private void registerMap(int id, String mapKey) {
+        while (mapKeys.size() <= id) {
+            mapKeys.add(null);
+            indexes.add(new MapIndex());
+        }
+        mapKeys.set(id, mapKey);
+        mapIds.put(mapKey, id);
+    }
+
+    private void readMaps() throws IOException {
+        if (!mapsFile.exists()) {
+            return;
+        }
+
+        for (String line : Files.readAllLines(mapsFile.toPath(), StandardCharsets.UTF_8)) {
+            int separator = line.indexOf('\t');
+            if (separator <= 0) {
+                continue;
+            }
+            try {
+                registerMap(Integer.parseInt(line.substring(0, separator)), line.substring(separator + 1));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+    }
+
+    private void readPlayers() throws IOException {
+        if (!playersFile.exists()) {
+            return;
+        }
+
+        byte[] content = Files.readAllBytes(playersFile.toPath());
+        ByteBuffer input = ByteBuffer.wrap(content);
+        if (content.length < PLAYERS_HEADER_SIZE || input.getInt(0) != PLAYERS_MAGIC) {
+            // File della prima versione, senza intestazione né checksum: viene riscritto nel formato nuovo.
+            readLegacyPlayers(content);
+            compactPlayers();
+            return;
+        }
+
+        int records = 0;
+        int valid = PLAYERS_HEADER_SIZE;
+        input.position(PLAYERS_HEADER_SIZE);
+        while (input.remaining() >= PLAYER_FIXED_SIZE + 4) {
+            int start = input.position();
+            long msb = input.getLong();
+            long lsb = input.getLong();
+            int length = input.getShort() & 0xFFFF;
+            if (input.remaining() < length + 4) {
+                break;
+            }
+
+            CRC32 checksum = new CRC32();
+            checksum.update(content, start, PLAYER_FIXED_SIZE + length);
+            input.position(start + PLAYER_FIXED_SIZE + length);
+            if (input.getInt() != (int) checksum.getValue()) {
+                break;
+            }
+
+            playerNames.put(new UUID(msb, lsb), new String(content, start + PLAYER_FIXED_SIZE, length, StandardCharsets.UTF_8));
+            records++;
+            valid = input.position();
+        }
+
+        if (valid < content.length) {
+            // Ultimo nome scritto a metà (crash prima del flush): si taglia, altrimenti i nomi aggiunti dopo
+            // finirebbero in coda ai byte non validi.
+            plugin.getLogger().warning("players.dat: scartati " + (content.length - valid) + " byte non validi in coda.");
+            try (FileChannel channel = FileChannel.open(playersFile.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(valid);
+                channel.force(true);
+            }
+        }
+
+        if (records > playerNames.size() * 2 + 1024) {
+            compactPlayers();
+        }
+    }
+
+    private void readLegacyPlayers(byte[] content) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(content))) {
+            while (true) {
+                long msb = input.readLong();
+                long lsb = input.readLong();
+                String name = input.readUTF();
+                playerNames.put(new UUID(msb, lsb), name);
+            }
+        } catch (IOException ignored) {
+            // Fine del file, oppure ultimo nome scritto a metà.
+        }
+    }
+
+    private void openPlayersOutput() throws IOException {
+        boolean empty = !playersFile.exists() || playersFile.length() == 0L;
+        playersStream = new FileOutputStream(playersFile, true);
+        playersOutput = new DataOutputStream(new BufferedOutputStream(playersStream));
+        if (empty) {
+            writePlayersHeader(playersOutput);
+        }
+    }
+
+    private void compactPlayers() throws IOException {
+        File temporary = new File(folder, playersFile.getName() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temporary);
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream))) {
+            writePlayersHeader(output);
+            for (java.util.Map.Entry<UUID, String> entry : playerNames.entrySet()) {
+                writePlayer(output, entry.getKey(), entry.getValue());
+            }
+            output.flush();
+            stream.getFD().sync();
+        }
+        Files.move(temporary.toPath(), playersFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void updatePlayerName(UUID playerId, String name) {
+        if (name == null || name.isEmpty() || name.equals(playerNames.get(playerId))) {
+            return;
+        }
+
+        playerNames.put(playerId, name);
+        try {
+            writePlayer(playersOutput, playerId, name);
+        } catch (IOException exception) {
+            plugin.getLogger().log(Level.SEVERE, "Impossibile salvare il nome di " + name, exception);
+        }
+    }
+
+    private static void writePlayersHeader(DataOutputStream output) throws IOException {
+        output.writeInt(PLAYERS_MAGIC);
+        output.writeInt(PLAYERS_VERSION);
+    }
+
+    /**
+     * Record di players.dat: UUID, lunghezza e nome in UTF-8, CRC32 dei byte precedenti.
+     */
+    private static void writePlayer(DataOutputStream output, UUID playerId, String name) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(nameBytes.length, 0xFFFF);
+        ByteBuffer record = ByteBuffer.allocate(PLAYER_FIXED_SIZE + length + 4);
+        record.putLong(playerId.getMostSignificantBits());
+        record.putLong(playerId.getLeastSignificantBits());
+        record.putShort((short) length);
+        record.put(nameBytes, 0, length);
+
+        CRC32 checksum = new CRC32();
+        checksum.update(record.array(), 0, record.position());
+        record.putInt((int) checksum.getValue());
+        output.write(record.array());
+    }
+
+    private String resolveName(UUID uuid) {
+        String stored = playerNames.get(uuid);
+        if (stored != null && !stored.isEmpty()) {
+            return stored;
+        }
+
+        OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(uuid);
+        String name = offlinePlayer.getName();
+        if (name != null && !name.isEmpty()) {
+            return name;
+        }
+
+        return uuid.toString();
+    }
+
+    /**
+     * Al primo avvio importa migliori tempi e corse in sospeso da data.yml, se presente.
+     */
+    private void importFromYaml() {
+        if (!new File(plugin.getDataFolder(), "data.yml").exists()) {
+            return;
+        }
+
+        YamlStatsStorage yaml = new YamlStatsStorage(plugin);
+        yaml.load();
+        int imported = 0;
+        for (String mapKey : yaml.getMapKeys()) {
+            for (StatsManager.LeaderboardEntry entry : yaml.getEntries(mapKey)) {
+                recordRun(mapKey, entry.playerId(), entry.name(), entry.timeNanos());
+                imported++;
+            }
+        }
+        for (StatsManager.OngoingRun run : yaml.getAllOngoingRuns()) {
+            saveOngoingRun(run.mapName(), run.playerId(), run.playerName(), run.elapsedNanos());
+        }
+        yaml.close();
+        save();
+        plugin.getLogger().info("Importati " + imported + " tempi da data.yml nel formato binario.");
+    }
+
+    private String normalizeKey(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Indice di una mappa: tabella hash UUID -> record e record ordinati per classifica.
+     */
+    private final class MapIndex {
+        private long[] msbs = new long[16];
+        private long[] lsbs = new long[16];
+        private int[] slots = filled(16);
+        private int size;
+        private int[] ordered = new int[16];
+
+        int size() {
+            return size;
+        }
+
+        int find(long msb, long lsb) {
+            int mask = slots.length - 1;
+            int index = hash(msb, lsb) & mask;
+            while (slots[index] >= 0) {
+                if (msbs[index] == msb && lsbs[index] == lsb) {
+                    return slots[index];
+                }
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        void put(long msb, long lsb, int slot) {
+            if ((size + 1) * 2 > slots.length) {
+                rehash(slots.length * 2);
+            }
+            int mask = slots.length - 1;
+            int index = hash(msb, lsb) & mask;
+            while (slots[index] >= 0) {
+                if (msbs[index] == msb && lsbs[index] == lsb) {
+                    slots[index] = slot;
+                    return;
+                }
+                index = (index + 1) & mask;
+            }
+            msbs[index] = msb;
+            lsbs[index] = lsb;
+            slots[index] = slot;
+            if (ordered.length <= size) {
+                ordered = Arrays.copyOf(ordered, ordered.length * 2);
+            }
+            ordered[size++] = slot;
+        }
+
+        void remove(long msb, long lsb) {
+            int mask = slots.length - 1;
+            int index = hash(msb, lsb) & mask;
+            while (slots[index] >= 0) {
+                if (msbs[index] == msb && lsbs[index] == lsb) {
+                    break;
+                }
+                index = (index + 1) & mask;
+            }
+            if (slots[index] < 0) {
+                return;
+            }
+
+            // Cancellazione con spostamento all'indietro, senza lapidi.
+            slots[index] = -1;
+            int next = (index + 1) & mask;
+            while (slots[next] >= 0) {
+                int home = hash(msbs[next], lsbs[next]) & mask;
+                if (((next - home) & mask) >= ((next - index) & mask)) {
+                    msbs[index] = msbs[next];
+                    lsbs[index] = lsbs[next];
+                    slots[index] = slots[next];
+                    slots[next] = -1;
+                    index = next;
+                }
+                next = (next + 1) & mask;
+            }
+            size--;
+        }
+
+        int slotAt(int position) {
+            return ordered[position];
+        }
+
+        /**
+         * Posizione (da 0) del record nella classifica, con una ricerca binaria.
+         */
+        int positionOf(int slot) {
+            int base = offset(slot);
+            long nanos = buffer.getLong(base + FIELD_NANOS);
+            long msb = buffer.getLong(base + FIELD_MSB);
+            long lsb = buffer.getLong(base + FIELD_LSB);
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int comparison = compare(ordered[middle], nanos, msb, lsb);
+                if (comparison < 0) {
+                    low = middle + 1;
+                } else if (comparison > 0) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Porta nella posizione corretta un record messo in coda da {@link #put} o tolto con {@link #removeOrdered}.
+         */
+        void insertOrdered(int slot) {
+            int current = size - 1;
+            ordered[current] = slot;
+            int target = positionIn(slot, current);
+            System.arraycopy(ordered, target, ordered, target + 1, current - target);
+            ordered[target] = slot;
+        }
+
+        /**
+         * Toglie il record dalla classifica (prima di cambiarne il tempo) lasciando un posto libero in coda.
+         */
+        void removeOrdered(int slot) {
+            int position = positionOf(slot);
+            System.arraycopy(ordered, position + 1, ordered, position, size - position - 1);
+            ordered[size - 1] = -1;
+        }
+
+        void sortAll() {
+            Integer[] boxed = new Integer[size];
+            for (int index = 0; index < size; index++) {
+                boxed[index] = ordered[index];
+            }
+            Arrays.sort(boxed, (left, right) -> {
+                int base = offset(right);
+                return compare(left, buffer.getLong(base + FIELD_NANOS), buffer.getLong(base + FIELD_MSB),
+                        buffer.getLong(base + FIELD_LSB));
+            });
+            for (int index = 0; index < size; index++) {
+                ordered[index] = boxed[index];
+            }
+        }
+
+        private int positionIn(int slot, int length) {
+            int base = offset(slot);
+            long nanos = buffer.getLong(base + FIELD_NANOS);
+            long msb = buffer.getLong(base + FIELD_MSB);
+            long lsb = buffer.getLong(base + FIELD_LSB);
+            int low = 0;
+            int high = length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (compare(ordered[middle], nanos, msb, lsb) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return low;
+        }
+
+        private void rehash(int capacity) {
+            long[] oldMsbs = msbs;
+            long[] oldLsbs = lsbs;
+            int[] oldSlots = slots;
+            msbs = new long[capacity];
+            lsbs = new long[capacity];
+            slots = filled(capacity);
+            int mask = capacity - 1;
+            for (int index = 0; index < oldSlots.length; index++) {
+                if (oldSlots[index] < 0) {
+                    continue;
+                }
+                int target = hash(oldMsbs[index], oldLsbs[index]) & mask;
+                while (slots[target] >= 0) {
+                    target = (target + 1) & mask;
+                }
+                msbs[target] = oldMsbs[index];
+                lsbs[target] = oldLsbs[index];
+                slots[target] = oldSlots[index];
+            }
+        }
+
+        private static int[] filled(int capacity) {
+            int[] values = new int[capacity];
+            Arrays.fill(values, -1);
+            return values;
+        }
+
+        private static int hash(long msb, long lsb) {
+            long hash = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32));
+        }
+    }
+
+    private record DeletedKey(int mapId, UUID playerId, boolean finished) {
+    }
+}
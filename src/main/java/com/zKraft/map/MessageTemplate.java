@@ -0,0 +1,182 @@
+package com.zKraft.map;
+
+import org.bukkit.ChatColor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Messaggio di config.yml già scomposto in testo fisso e placeholder, con i colori già risolti.
+ * I codici colore valgono solo nel testo fisso: un codice spezzato da un placeholder ({@code &{seconds}})
+ * o il valore di un placeholder non vengono tradotti.
+ */
+public final class MessageTemplate {
+
+    private static final Pattern HEX_PATTERN = Pattern.compile("&#([0-9a-fA-F]{6})");
+    // Fine di un testo fisso con un codice colore incompleto: "&" oppure "&#" seguito da meno di sei cifre.
+    private static final Pattern DANGLING_CODE = Pattern.compile("&(#[0-9a-fA-F]{0,5})?$");
+    private static final int LITERAL = -1;
+
+    public static final MessageTemplate EMPTY = new MessageTemplate(new String[0], new int[0], 0, false);
+
+    private final String[] literals;
+    private final int[] placeholders;
+    private final int literalLength;
+    private final boolean playerSpecific;
+    private final boolean splitColorCode;
+
+    private MessageTemplate(String[] literals, int[] placeholders, int literalLength, boolean splitColorCode) {
+        this.literals = literals;
+        this.placeholders = placeholders;
+        this.literalLength = literalLength;
+        this.splitColorCode = splitColorCode;
+
+        boolean usesPlayerValues = false;
+        for (int placeholder : placeholders) {
+            if (placeholder == Placeholder.PLAYER.ordinal() || placeholder == Placeholder.TIME.ordinal()) {
+                usesPlayerValues = true;
+                break;
+            }
+        }
+        this.playerSpecific = usesPlayerValues;
+    }
+
+    public static MessageTemplate compile(String template) {
+        if (template == null || template.isEmpty()) {
+            return EMPTY;
+        }
+
+        List<String> literals = new ArrayList<>();
+        List<Integer> placeholders = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int index = 0;
+        while (index < template.length()) {
+            Placeholder placeholder = template.charAt(index) == '{' ? Placeholder.at(template, index) : null;
+            if (placeholder == null) {
+                literal.append(template.charAt(index++));
+                continue;
+            }
+
+            if (literal.length() > 0) {
+                literals.add(literal.toString());
+                placeholders.add(LITERAL);
+                literal.setLength(0);
+            }
+            literals.add(null);
+            placeholders.add(placeholder.ordinal());
+            index += placeholder.token.length();
+        }
+        if (literal.length() > 0) {
+            literals.add(literal.toString());
+            placeholders.add(LITERAL);
+        }
+
+        String[] literalArray = new String[literals.size()];
+        int[] placeholderArray = new int[placeholders.size()];
+        int literalLength = 0;
+        boolean splitColorCode = false;
+        for (int segment = 0; segment < literalArray.length; segment++) {
+            placeholderArray[segment] = placeholders.get(segment);
+            if (placeholderArray[segment] == LITERAL) {
+                String raw = literals.get(segment);
+                if (segment + 1 < literalArray.length && DANGLING_CODE.matcher(raw).find()) {
+                    splitColorCode = true;
+                }
+                literalArray[segment] = colorize(raw);
+                literalLength += literalArray[segment].length();
+            }
+        }
+        return new MessageTemplate(literalArray, placeholderArray, literalLength, splitColorCode);
+    }
+
+    /**
+     * Compone il messaggio; un valore {@code null} lascia il placeholder così com'è.
+     */
+    public String render(String seconds, String map, String player, String time) {
+        if (placeholders.length == 0) {
+            return "";
+        }
+        if (placeholders.length == 1 && placeholders[0] == LITERAL) {
+            return literals[0];
+        }
+
+        StringBuilder builder = new StringBuilder(literalLength + 32);
+        for (int segment = 0; segment < placeholders.length; segment++) {
+            int placeholder = placeholders[segment];
+            if (placeholder == LITERAL) {
+                builder.append(literals[segment]);
+                continue;
+            }
+
+            String value = switch (Placeholder.VALUES[placeholder]) {
+                case SECONDS -> seconds;
+                case MAP -> map;
+                case PLAYER -> player;
+                case TIME -> time;
+            };
+            builder.append(value != null ? value : Placeholder.VALUES[placeholder].token);
+        }
+        return builder.toString();
+    }
+
+    public boolean isEmpty() {
+        return placeholders.length == 0;
+    }
+
+    /**
+     * Indica se il risultato dipende dal singolo giocatore o dalla singola corsa ({player} o {time}).
+     */
+    public boolean isPlayerSpecific() {
+        return playerSpecific;
+    }
+
+    /**
+     * Indica se un codice colore è interrotto da un placeholder e verrà mostrato così com'è.
+     */
+    public boolean hasSplitColorCode() {
+        return splitColorCode;
+    }
+
+    private static String colorize(String input) {
+        Matcher matcher = HEX_PATTERN.matcher(input);
+        StringBuilder buffer = new StringBuilder();
+        while (matcher.find()) {
+            String color = matcher.group(1);
+            net.md_5.bungee.api.ChatColor chatColor;
+            try {
+                chatColor = net.md_5.bungee.api.ChatColor.of("#" + color);
+            } catch (IllegalArgumentException exception) {
+                chatColor = net.md_5.bungee.api.ChatColor.WHITE;
+            }
+            matcher.appendReplacement(buffer, Matcher.quoteReplacement(chatColor.toString()));
+        }
+        matcher.appendTail(buffer);
+        return ChatColor.translateAlternateColorCodes('&', buffer.toString());
+    }
+
+    private enum Placeholder {
+        SECONDS("{seconds}"),
+        MAP("{map}"),
+        PLAYER("{player}"),
+        TIME("{time}");
+
+        private static final Placeholder[] VALUES = values();
+
+        private final String token;
+
+        Placeholder(String token) {
+            this.token = token;
+        }
+
+        static Placeholder at(String template, int index) {
+            for (Placeholder placeholder : VALUES) {
+                if (template.startsWith(placeholder.token, index)) {
+                    return placeholder;
+                }
+            }
+            return null;
+        }
+    }
+}
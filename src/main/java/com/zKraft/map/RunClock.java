@@ -0,0 +1,15 @@
+package com.zKraft.map;
+
+/**
+ * Sorgente del tempo usata per cronometrare le corse, in nanosecondi monotoni.
+ */
+public interface RunClock {
+
+    long nanoTime();
+
+    default void start() {
+    }
+
+    default void stop() {
+    }
+}
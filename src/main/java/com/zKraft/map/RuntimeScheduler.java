@@ -0,0 +1,60 @@
+package com.zKraft.map;
+
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+
+/**
+ * Scheduler usato dal cronometro: su Paper tutto gira sul thread principale,
+ * su Folia ogni giocatore viene gestito dal thread della propria regione.
+ */
+public interface RuntimeScheduler {
+
+    Task NO_TASK = () -> {
+    };
+
+    static RuntimeScheduler create(JavaPlugin plugin) {
+        if (isFolia()) {
+            return new FoliaRuntimeScheduler(plugin);
+        }
+        return new BukkitRuntimeScheduler(plugin);
+    }
+
+    static boolean isFolia() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * Indica se i giocatori vanno gestiti singolarmente sul thread della loro regione.
+     */
+    boolean isRegionized();
+
+    /**
+     * Task ripetuto non legato a un giocatore.
+     */
+    Task runTimer(Runnable task, long delayTicks, long periodTicks);
+
+    /**
+     * Task ripetuto eseguito sul thread che possiede il giocatore; termina da solo quando il giocatore esce.
+     */
+    Task runTimer(Player player, Runnable task, long delayTicks, long periodTicks);
+
+    /**
+     * Esegue il task una volta sul thread che possiede il giocatore (subito, se ci si trova già lì).
+     */
+    void runFor(Player player, Runnable task);
+
+    /**
+     * Esegue il task sul thread globale del server (subito, se ci si trova già lì).
+     */
+    void runGlobal(Runnable task);
+
+    @FunctionalInterface
+    interface Task {
+        void cancel();
+    }
+}
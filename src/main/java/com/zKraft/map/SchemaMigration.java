@@ -0,0 +1,261 @@
+package com.zKraft.map;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Migrazione dalle tabelle v1 (UUID CHAR(36) e map_key in ogni riga) alle tabelle v2 di {@link DatabasePreparer}.
+ * Ogni blocco di righe viene copiato e cancellato dalla tabella v1 nella stessa transazione:
+ * se il server si ferma, la migrazione riprende dalle righe rimaste. Una tabella v1 svuotata viene eliminata.
+ */
+final class SchemaMigration {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final SqlDialect dialect;
+    private final Logger logger;
+    private final MapIdResolver mapIds;
+    // Tabelle v1 ancora da migrare, nell'ordine in cui vengono svuotate.
+    private final List<LegacyTable> remaining;
+    private long migratedRows;
+
+    private SchemaMigration(SqlDialect dialect, Logger logger, MapIdResolver mapIds, List<LegacyTable> remaining) {
+        this.dialect = dialect;
+        this.logger = logger;
+        this.mapIds = mapIds;
+        this.remaining = remaining;
+    }
+
+    /**
+     * Restituisce la migrazione da eseguire, oppure {@code null} se non ci sono tabelle v1.
+     */
+    static SchemaMigration detect(Connection connection, SqlDialect dialect, Logger logger, MapIdResolver mapIds)
+            throws SQLException {
+        // Le corse in sospeso vanno per prime: sono poche e servono subito dopo l'avvio.
+        LegacyTable[] tables = {
+                new LegacyTable("zcrono_map_times_uncompleted", "zcrono_map_times_uncompleted_v2", false, false),
+                new LegacyTable("zcrono_players", "zcrono_players_v2", false, false),
+                new LegacyTable("zcrono_map_times", "zcrono_map_times_v2", true, false),
+                new LegacyTable("zcrono_deleted_map_times", "zcrono_deleted_map_times_v2", false, true)
+        };
+
+        List<LegacyTable> remaining = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(dialect.tableExistsSql())) {
+            for (LegacyTable table : tables) {
+                statement.setString(1, table.name());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (resultSet.next() && resultSet.getInt(1) > 0) {
+                        remaining.add(table);
+                    }
+                }
+            }
+        }
+        return remaining.isEmpty() ? null : new SchemaMigration(dialect, logger, mapIds, remaining);
+    }
+
+    synchronized boolean isComplete() {
+        return remaining.isEmpty();
+    }
+
+    synchronized long migratedRows() {
+        return migratedRows;
+    }
+
+    /**
+     * Migra tutte le corse in sospeso; va chiamato prima di leggerle dalle tabelle v2.
+     */
+    synchronized void migrateOngoingRuns(Connection connection) throws SQLException {
+        while (!remaining.isEmpty() && remaining.get(0).name().equals("zcrono_map_times_uncompleted")) {
+            migrateBatch(connection);
+        }
+    }
+
+    /**
+     * Sposta subito i tempi v1 di una mappa, così un reset non viene annullato dalla migrazione successiva.
+     */
+    synchronized void migrateMap(Connection connection, String mapKey) throws SQLException {
+        for (LegacyTable table : remaining) {
+            if (!table.name().equals("zcrono_map_times") && !table.name().equals("zcrono_map_times_uncompleted")) {
+                continue;
+            }
+            int copied;
+            do {
+                copied = copyBatch(connection, table, mapKey);
+            } while (copied == BATCH_SIZE);
+        }
+    }
+
+    /**
+     * Migra un blocco di righe della prima tabella rimasta. Restituisce {@code false} a migrazione completata.
+     */
+    synchronized boolean migrateBatch(Connection connection) throws SQLException {
+        if (remaining.isEmpty()) {
+            return false;
+        }
+
+        LegacyTable table = remaining.get(0);
+        if (copyBatch(connection, table, null) == 0) {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DROP TABLE IF EXISTS " + table.name());
+            }
+            remaining.remove(0);
+        }
+        return !remaining.isEmpty();
+    }
+
+    private int copyBatch(Connection connection, LegacyTable table, String mapKey) throws SQLException {
+        boolean players = table.name().equals("zcrono_players");
+        List<LegacyRow> rows = readRows(connection, table, players, mapKey);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        // Gli id delle mappe vanno creati fuori dalla transazione, perché restano in cache.
+        java.util.Map<String, Integer> ids = new HashMap<>();
+        if (!players) {
+            for (LegacyRow row : rows) {
+                if (!ids.containsKey(row.mapKey())) {
+                    ids.put(row.mapKey(), mapIds.resolve(connection, row.mapKey()));
+                }
+            }
+        }
+
+        boolean previousAutoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(insertSql(table, players));
+             PreparedStatement delete = connection.prepareStatement(deleteSql(table, players))) {
+            for (LegacyRow row : rows) {
+                UUID playerId = parseUuid(row.playerUuid());
+                if (players) {
+                    if (playerId != null && row.name() != null) {
+                        insert.setBytes(1, SqlStatsStorage.uuidBytes(playerId));
+                        insert.setString(2, row.name());
+                        insert.addBatch();
+                    }
+                    delete.setString(1, row.playerUuid());
+                } else {
+                    if (playerId != null) {
+                        insert.setInt(1, ids.get(row.mapKey()));
+                        insert.setBytes(2, SqlStatsStorage.uuidBytes(playerId));
+                        insert.setLong(3, row.nanos());
+                        if (table.hasFinishedFlag()) {
+                            insert.setInt(4, row.finished());
+                        }
+                        insert.addBatch();
+                    }
+                    delete.setString(1, row.mapKey());
+                    delete.setString(2, row.playerUuid());
+                    if (table.hasFinishedFlag()) {
+                        delete.setInt(3, row.finished());
+                    }
+                }
+                delete.addBatch();
+            }
+
+            insert.executeBatch();
+            delete.executeBatch();
+            connection.commit();
+        } catch (SQLException exception) {
+            connection.rollback();
+            throw exception;
+        } finally {
+            connection.setAutoCommit(previousAutoCommit);
+        }
+
+        migratedRows += rows.size();
+        return rows.size();
+    }
+
+    private List<LegacyRow> readRows(Connection connection, LegacyTable table, boolean players, String mapKey)
+            throws SQLException {
+        String sql;
+        if (players) {
+            sql = "SELECT uuid, name FROM zcrono_players LIMIT ?";
+        } else {
+            sql = "SELECT map_key, player_uuid, best_nanos" + (table.hasFinishedFlag() ? ", is_run_finished" : "")
+                    + " FROM " + table.name() + (mapKey != null ? " WHERE map_key = ?" : "") + " LIMIT ?";
+        }
+
+        List<LegacyRow> rows = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int index = 1;
+            if (mapKey != null) {
+                statement.setString(index++, mapKey);
+            }
+            statement.setInt(index, BATCH_SIZE);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    if (players) {
+                        rows.add(new LegacyRow(null, resultSet.getString(1), resultSet.getString(2), 0L, 0));
+                    } else {
+                        int finished = table.hasFinishedFlag() ? resultSet.getInt(4) : 0;
+                        rows.add(new LegacyRow(resultSet.getString(1), resultSet.getString(2), null, resultSet.getLong(3), finished));
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    private String insertSql(LegacyTable table, boolean players) {
+        if (players) {
+            // I nomi scritti nelle tabelle v2 durante la migrazione sono più recenti: quelli v1 non li sovrascrivono.
+            return dialect.insertIgnore() + " zcrono_players_v2 (uuid, name) VALUES (?, ?)";
+        }
+        if (table.keepMinimum()) {
+            return "INSERT INTO " + table.target() + " (map_id, player_uuid, best_nanos) VALUES (?, ?, ?) "
+                    + dialect.upsertMinimum(table.target(), "map_id, player_uuid", "best_nanos");
+        }
+        if (table.hasFinishedFlag()) {
+            return dialect.insertIgnore() + ' ' + table.target()
+                    + " (map_id, player_uuid, best_nanos, is_run_finished) VALUES (?, ?, ?, ?)";
+        }
+        return dialect.insertIgnore() + ' ' + table.target() + " (map_id, player_uuid, best_nanos) VALUES (?, ?, ?)";
+    }
+
+    private static String deleteSql(LegacyTable table, boolean players) {
+        if (players) {
+            return "DELETE FROM zcrono_players WHERE uuid = ?";
+        }
+        return "DELETE FROM " + table.name() + " WHERE map_key = ? AND player_uuid = ?"
+                + (table.hasFinishedFlag() ? " AND is_run_finished = ?" : "");
+    }
+
+    private UUID parseUuid(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException exception) {
+            logger.warning("UUID non valido ignorato durante la migrazione: " + value);
+            return null;
+        }
+    }
+
+    /**
+     * Id della mappa in zcrono_maps, creato se manca.
+     */
+    @FunctionalInterface
+    interface MapIdResolver {
+        int resolve(Connection connection, String mapKey) throws SQLException;
+    }
+
+    /**
+     * Tabella v1 e tabella v2 di destinazione. Con {@code keepMinimum} i tempi già presenti in v2 vengono uniti
+     * tenendo il migliore; altrimenti vince la riga v2, che è più recente.
+     */
+    private record LegacyTable(String name, String target, boolean keepMinimum, boolean hasFinishedFlag) {
+    }
+
+    private record LegacyRow(String mapKey, String playerUuid, String name, long nanos, int finished) {
+    }
+}
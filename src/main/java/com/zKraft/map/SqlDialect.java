@@ -0,0 +1,92 @@
+package com.zKraft.map;
+
+/**
+ * Differenze di sintassi tra i database supportati: driver, clausole di upsert e catalogo delle tabelle.
+ */
+public enum SqlDialect {
+
+    MYSQL("MySQL", "com.mysql.cj.jdbc.Driver", "INSERT IGNORE INTO",
+            "SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = DATABASE() AND table_name = ?") {
+        @Override
+        String upsert(String conflictColumns, String... columns) {
+            StringBuilder builder = new StringBuilder("ON DUPLICATE KEY UPDATE ");
+            for (int index = 0; index < columns.length; index++) {
+                if (index > 0) {
+                    builder.append(", ");
+                }
+                builder.append(columns[index]).append(" = VALUES(").append(columns[index]).append(')');
+            }
+            return builder.toString();
+        }
+
+        @Override
+        String upsertMinimum(String table, String conflictColumns, String column) {
+            return "ON DUPLICATE KEY UPDATE " + column + " = LEAST(" + table + '.' + column + ", VALUES(" + column + "))";
+        }
+    },
+
+    SQLITE("SQLite", "org.sqlite.JDBC", "INSERT OR IGNORE INTO",
+            "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = ?") {
+        @Override
+        String upsert(String conflictColumns, String... columns) {
+            StringBuilder builder = new StringBuilder("ON CONFLICT (").append(conflictColumns).append(") DO UPDATE SET ");
+            for (int index = 0; index < columns.length; index++) {
+                if (index > 0) {
+                    builder.append(", ");
+                }
+                builder.append(columns[index]).append(" = excluded.").append(columns[index]);
+            }
+            return builder.toString();
+        }
+
+        @Override
+        String upsertMinimum(String table, String conflictColumns, String column) {
+            return "ON CONFLICT (" + conflictColumns + ") DO UPDATE SET "
+                    + column + " = MIN(" + table + '.' + column + ", excluded." + column + ')';
+        }
+    };
+
+    private final String displayName;
+    private final String driverClass;
+    private final String insertIgnore;
+    private final String tableExistsSql;
+
+    SqlDialect(String displayName, String driverClass, String insertIgnore, String tableExistsSql) {
+        this.displayName = displayName;
+        this.driverClass = driverClass;
+        this.insertIgnore = insertIgnore;
+        this.tableExistsSql = tableExistsSql;
+    }
+
+    public String displayName() {
+        return displayName;
+    }
+
+    public String driverClass() {
+        return driverClass;
+    }
+
+    /**
+     * Inizio di un INSERT che non fa nulla se la chiave esiste già.
+     */
+    String insertIgnore() {
+        return insertIgnore;
+    }
+
+    /**
+     * Query che conta le tabelle con il nome indicato nel database corrente.
+     */
+    String tableExistsSql() {
+        return tableExistsSql;
+    }
+
+    /**
+     * Clausola che, in caso di chiave duplicata, sovrascrive le colonne indicate con i nuovi valori.
+     */
+    abstract String upsert(String conflictColumns, String... columns);
+
+    /**
+     * Clausola che, in caso di chiave duplicata, tiene il valore minore tra quello salvato e quello nuovo.
+     */
+    abstract String upsertMinimum(String table, String conflictColumns, String column);
+}
@@ -0,0 +1,935 @@
+package com.zKraft.map;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Query SQL usate nel plugin, comuni a MySQL e SQLite: cambiano solo le clausole di upsert (vedi {@link SqlDialect}).
+ * Usa lo schema v2 di {@link DatabasePreparer}; eventuali tabelle v1 vengono migrate in background da {@link SchemaMigration}.
+ */
+public class SqlStatsStorage implements StatsStorage {
+
+    private static final String SELECT_MAP_ID_SQL = """
+            SELECT id FROM zcrono_maps WHERE map_key = ?
+            """;
+
+    private static final String DELETE_PLAYER_TIME_SQL = """
+            DELETE FROM zcrono_map_times_v2
+            WHERE map_id = ? AND player_uuid = ?
+            """;
+
+    private static final String DELETE_MAP_TIMES_SQL = """
+            DELETE FROM zcrono_map_times_v2 WHERE map_id = ?
+            """;
+
+    private static final String SELECT_BEST_TIME_SQL = """
+            SELECT best_nanos FROM zcrono_map_times_v2
+            WHERE map_id = ? AND player_uuid = ?
+            """;
+
+    // Classifica ordinata per (best_nanos, player_uuid), lo stesso ordine di idx_zcrono_map_times_v2_map:
+    // posizione e podio si leggono dall'indice senza ordinare né unire l'intera mappa.
+    private static final String SELECT_RANK_SQL = """
+            SELECT 1 + (
+                SELECT COUNT(*)
+                FROM zcrono_map_times_v2 ahead
+                WHERE ahead.map_id = mt.map_id
+                  AND (ahead.best_nanos < mt.best_nanos
+                       OR (ahead.best_nanos = mt.best_nanos AND ahead.player_uuid < mt.player_uuid))
+            ) AS position
+            FROM zcrono_map_times_v2 mt
+            WHERE mt.map_id = ? AND mt.player_uuid = ?
+            """;
+
+    private static final String SELECT_TOP_SQL = """
+            SELECT top.player_uuid, p.name, top.best_nanos
+            FROM (
+                SELECT player_uuid, best_nanos
+                FROM zcrono_map_times_v2
+                WHERE map_id = ?
+                ORDER BY best_nanos ASC, player_uuid ASC
+                LIMIT 1 OFFSET ?
+            ) top
+            LEFT JOIN zcrono_players_v2 p ON p.uuid = top.player_uuid
+            """;
+
+    private static final String SELECT_ALL_SQL = """
+            SELECT mt.player_uuid, p.name, mt.best_nanos
+            FROM zcrono_map_times_v2 mt
+            LEFT JOIN zcrono_players_v2 p ON p.uuid = mt.player_uuid
+            WHERE mt.map_id = ?
+            ORDER BY mt.best_nanos ASC, mt.player_uuid ASC
+            """;
+
+    private static final String SELECT_TOP_N_SQL = """
+            SELECT top.player_uuid, p.name, top.best_nanos
+            FROM (
+                SELECT player_uuid, best_nanos
+                FROM zcrono_map_times_v2
+                WHERE map_id = ?
+                ORDER BY best_nanos ASC, player_uuid ASC
+                LIMIT ?
+            ) top
+            LEFT JOIN zcrono_players_v2 p ON p.uuid = top.player_uuid
+            ORDER BY top.best_nanos ASC, top.player_uuid ASC
+            """;
+
+    private static final String DELETE_UNFINISHED_PLAYER_SQL = """
+            DELETE FROM zcrono_map_times_uncompleted_v2
+            WHERE map_id = ? AND player_uuid = ?
+            """;
+
+    private static final String DELETE_UNFINISHED_MAP_SQL = """
+            DELETE FROM zcrono_map_times_uncompleted_v2 WHERE map_id = ?
+            """;
+
+    private static final String SELECT_ALL_UNFINISHED_SQL = """
+            SELECT m.map_key, uc.player_uuid, uc.best_nanos, p.name
+            FROM zcrono_map_times_uncompleted_v2 uc
+            JOIN zcrono_maps m ON m.id = uc.map_id
+            LEFT JOIN zcrono_players_v2 p ON p.uuid = uc.player_uuid
+            """;
+
+    private static final String DELETED_KEY = "map_id, player_uuid, is_run_finished";
+    // Pausa tra un blocco e l'altro della migrazione, per non monopolizzare il database.
+    private static final long MIGRATION_DELAY_MILLIS = 50L;
+
+    private final String insertMapSql;
+    private final String upsertPlayerSql;
+    private final String upsertTimeSql;
+    private final String upsertUnfinishedTimeSql;
+    private final String moveFinishedPlayerSql;
+    private final String moveUnfinishedPlayerSql;
+    private final String moveFinishedMapSql;
+    private final String moveUnfinishedMapSql;
+
+    private final Logger logger;
+    private final DatabaseSettings settings;
+    private final DatabasePreparer preparer;
+    private HikariDataSource dataSource;
+
+    // Tempi in attesa di essere scritti: per ogni coppia (mappa, giocatore) resta solo il migliore.
+    private final java.util.Map<PendingKey, PendingRun> pendingRuns = new LinkedHashMap<>();
+    // Serializza i flush con i reset, così un flush non può riscrivere un tempo appena cancellato.
+    private final Object flushLock = new Object();
+    private ScheduledExecutorService flushExecutor;
+
+    // Gli id di zcrono_maps non cambiano mai: una volta letti restano validi.
+    private final java.util.Map<String, Integer> mapIds = new ConcurrentHashMap<>();
+    private volatile SchemaMigration migration;
+    private volatile ScheduledExecutorService migrationExecutor;
+
+    public SqlStatsStorage(JavaPlugin plugin, DatabaseSettings settings) {
+        this.logger = plugin.getLogger();
+        this.settings = settings;
+        this.preparer = new DatabasePreparer(logger, settings.dialect());
+
+        SqlDialect dialect = settings.dialect();
+        this.insertMapSql = dialect.insertIgnore() + " zcrono_maps (map_key) VALUES (?)";
+        this.upsertPlayerSql = """
+                INSERT INTO zcrono_players_v2 (uuid, name)
+                VALUES (?, ?)
+                """ + dialect.upsert("uuid", "name");
+        this.upsertTimeSql = """
+                INSERT INTO zcrono_map_times_v2 (map_id, player_uuid, best_nanos)
+                VALUES (?, ?, ?)
+                """ + dialect.upsertMinimum("zcrono_map_times_v2", "map_id, player_uuid", "best_nanos");
+        this.upsertUnfinishedTimeSql = """
+                INSERT INTO zcrono_map_times_uncompleted_v2 (map_id, player_uuid, best_nanos)
+                VALUES (?, ?, ?)
+                """ + dialect.upsert("map_id, player_uuid", "best_nanos");
+        this.moveFinishedPlayerSql = """
+                INSERT INTO zcrono_deleted_map_times_v2 (map_id, player_uuid, best_nanos, is_run_finished)
+                SELECT map_id, player_uuid, best_nanos, 1
+                FROM zcrono_map_times_v2
+                WHERE map_id = ? AND player_uuid = ?
+                """ + dialect.upsert(DELETED_KEY, "best_nanos");
+        this.moveUnfinishedPlayerSql = """
+                INSERT INTO zcrono_deleted_map_times_v2 (map_id, player_uuid, best_nanos, is_run_finished)
+                SELECT map_id, player_uuid, best_nanos, 0
+                FROM zcrono_map_times_uncompleted_v2
+                WHERE map_id = ? AND player_uuid = ?
+                """ + dialect.upsert(DELETED_KEY, "best_nanos");
+        this.moveFinishedMapSql = """
+                INSERT INTO zcrono_deleted_map_times_v2 (map_id, player_uuid, best_nanos, is_run_finished)
+                SELECT map_id, player_uuid, best_nanos, 1
+                FROM zcrono_map_times_v2
+                WHERE map_id = ?
+                """ + dialect.upsert(DELETED_KEY, "best_nanos");
+        this.moveUnfinishedMapSql = """
+                INSERT INTO zcrono_deleted_map_times_v2 (map_id, player_uuid, best_nanos, is_run_finished)
+                SELECT map_id, player_uuid, best_nanos, 0
+                FROM zcrono_map_times_uncompleted_v2
+                WHERE map_id = ?
+                """ + dialect.upsert(DELETED_KEY, "best_nanos");
+        loadDriver(dialect);
+    }
+
+    @Override
+    public void load() {
+        if (dataSource == null) {
+            dataSource = createDataSource();
+        }
+
+        try (Connection connection = getConnection()) {
+            preparer.prepare(connection);
+            startMigration(connection);
+        } catch (SQLException exception) {
+            logger.log(Level.SEVERE, "Impossibile connettersi al database di zCrono", exception);
+        }
+
+        long flushInterval = settings.writeBehind().flushIntervalMillis();
+        if (flushInterval > 0L && flushExecutor == null) {
+            flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "zCrono-" + settings.dialect().displayName() + "-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flushExecutor.scheduleWithFixedDelay(this::flushPendingRuns, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Se ci sono tabelle v1 sposta subito le corse in sospeso, poi migra il resto a blocchi in background.
+     * Finché la migrazione non termina, le classifiche possono non includere i tempi non ancora spostati.
+     */
+    private void startMigration(Connection connection) throws SQLException {
+        if (migration != null) {
+            return;
+        }
+
+        SchemaMigration detected = SchemaMigration.detect(connection, settings.dialect(), logger,
+                (current, mapKey) -> mapId(current, mapKey, true));
+        if (detected == null) {
+            return;
+        }
+
+        logger.info("Migrazione del database di zCrono allo schema v2 in corso...");
+        detected.migrateOngoingRuns(connection);
+        migration = detected;
+        migrationExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "zCrono-" + settings.dialect().displayName() + "-migration");
+            thread.setDaemon(true);
+            return thread;
+        });
+        migrationExecutor.scheduleWithFixedDelay(this::migrateNextBatch, 0L, MIGRATION_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void migrateNextBatch() {
+        SchemaMigration current = migration;
+        if (current == null) {
+            return;
+        }
+
+        boolean more;
+        // Stesso lock dei reset: un blocco migrato non può riportare in vita tempi appena cancellati.
+        synchronized (flushLock) {
+            try (Connection connection = getConnection()) {
+                more = current.migrateBatch(connection);
+            } catch (SQLException exception) {
+                logger.log(Level.WARNING, "Migrazione dello schema interrotta, verrà ripresa", exception);
+                return;
+            }
+        }
+
+        if (!more) {
+            migration = null;
+            logger.info("Migrazione allo schema v2 completata: " + current.migratedRows() + " righe spostate.");
+            ScheduledExecutorService executor = migrationExecutor;
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Prima di un reset sposta nello schema v2 i tempi v1 della mappa, se la migrazione è ancora in corso.
+     */
+    private void migrateMapNow(Connection connection, String mapKey) throws SQLException {
+        SchemaMigration current = migration;
+        if (current != null) {
+            current.migrateMap(connection, mapKey);
+        }
+    }
+
+    /**
+     * Id della mappa in zcrono_maps, oppure -1 se non esiste e {@code create} è false.
+     * Va chiamato fuori dalle transazioni: l'id viene messo in cache subito.
+     */
+    private int mapId(Connection connection, String mapKey, boolean create) throws SQLException {
+        Integer cached = mapIds.get(mapKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        int id = selectMapId(connection, mapKey);
+        if (id < 0 && create) {
+            try (PreparedStatement statement = connection.prepareStatement(insertMapSql)) {
+                statement.setString(1, mapKey);
+                statement.executeUpdate();
+            }
+            id = selectMapId(connection, mapKey);
+        }
+
+        if (id >= 0) {
+            mapIds.put(mapKey, id);
+        }
+        return id;
+    }
+
+    private int selectMapId(Connection connection, String mapKey) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_MAP_ID_SQL)) {
+            statement.setString(1, mapKey);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getInt(1) : -1;
+            }
+        }
+    }
+
+    @Override
+    public void save() {
+        flushPendingRuns();
+    }
+
+    @Override
+    public void recordRun(String mapName, UUID playerId, String playerName, long nanos) {
+        if (mapName == null || mapName.isEmpty() || playerId == null || nanos <= 0L) {
+            return;
+        }
+
+        PendingKey key = new PendingKey(normalizeKey(mapName), playerId);
+        String resolvedName = resolvePlayerName(playerId, playerName);
+
+        boolean flushNow;
+        synchronized (pendingRuns) {
+            PendingRun previous = pendingRuns.get(key);
+            long best = previous != null ? Math.min(previous.nanos(), nanos) : nanos;
+            pendingRuns.put(key, new PendingRun(resolvedName, best));
+            flushNow = flushExecutor == null || pendingRuns.size() >= settings.writeBehind().maxPending();
+        }
+
+        if (flushNow) {
+            flushPendingRuns();
+        }
+    }
+
+    /**
+     * Scrive tutti i tempi in coda con un'unica transazione e tre batch JDBC.
+     */
+    private void flushPendingRuns() {
+        synchronized (flushLock) {
+            java.util.Map<PendingKey, PendingRun> batch;
+            synchronized (pendingRuns) {
+                if (pendingRuns.isEmpty()) {
+                    return;
+                }
+                batch = new LinkedHashMap<>(pendingRuns);
+                pendingRuns.clear();
+            }
+
+            try (Connection connection = getConnection()) {
+                java.util.Map<String, Integer> batchMapIds = new HashMap<>();
+                for (PendingKey key : batch.keySet()) {
+                    if (!batchMapIds.containsKey(key.mapKey())) {
+                        batchMapIds.put(key.mapKey(), mapId(connection, key.mapKey(), true));
+                    }
+                }
+
+                boolean previousAutoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                try (PreparedStatement playerStatement = connection.prepareStatement(upsertPlayerSql);
+                     PreparedStatement timeStatement = connection.prepareStatement(upsertTimeSql);
+                     PreparedStatement deleteUnfinished = connection.prepareStatement(DELETE_UNFINISHED_PLAYER_SQL)) {
+
+                    for (java.util.Map.Entry<PendingKey, PendingRun> entry : batch.entrySet()) {
+                        byte[] playerId = uuidBytes(entry.getKey().playerId());
+                        int mapId = batchMapIds.get(entry.getKey().mapKey());
+
+                        playerStatement.setBytes(1, playerId);
+                        playerStatement.setString(2, entry.getValue().playerName());
+                        playerStatement.addBatch();
+
+                        timeStatement.setInt(1, mapId);
+                        timeStatement.setBytes(2, playerId);
+                        timeStatement.setLong(3, entry.getValue().nanos());
+                        timeStatement.addBatch();
+
+                        deleteUnfinished.setInt(1, mapId);
+                        deleteUnfinished.setBytes(2, playerId);
+                        deleteUnfinished.addBatch();
+                    }
+
+                    playerStatement.executeBatch();
+                    timeStatement.executeBatch();
+                    deleteUnfinished.executeBatch();
+                    connection.commit();
+                } catch (SQLException exception) {
+                    connection.rollback();
+                    throw exception;
+                } finally {
+                    connection.setAutoCommit(previousAutoCommit);
+                }
+            } catch (SQLException exception) {
+                logger.log(Level.SEVERE, "Impossibile registrare " + batch.size() + " tempi nel database, verranno riprovati", exception);
+                requeue(batch);
+            }
+        }
+    }
+
+    private void requeue(java.util.Map<PendingKey, PendingRun> batch) {
+        synchronized (pendingRuns) {
+            for (java.util.Map.Entry<PendingKey, PendingRun> entry : batch.entrySet()) {
+                pendingRuns.merge(entry.getKey(), entry.getValue(),
+                        (newer, failed) -> newer.nanos() <= failed.nanos() ? newer : failed);
+            }
+        }
+    }
+
+    private OptionalLong pendingBestTime(String mapKey, UUID playerId) {
+        synchronized (pendingRuns) {
+            PendingRun pending = pendingRuns.get(new PendingKey(mapKey, playerId));
+            return pending != null ? OptionalLong.of(pending.nanos()) : OptionalLong.empty();
+        }
+    }
+
+    @Override
+    public boolean resetPlayer(String mapName, UUID playerId) {
+        if (mapName == null || playerId == null) {
+            return false;
+        }
+
+        String normalizedMap = normalizeKey(mapName);
+
+        synchronized (flushLock) {
+            boolean droppedPending;
+            synchronized (pendingRuns) {
+                droppedPending = pendingRuns.remove(new PendingKey(normalizedMap, playerId)) != null;
+            }
+            return deletePlayerTimes(normalizedMap, playerId) || droppedPending;
+        }
+    }
+
+    private boolean deletePlayerTimes(String normalizedMap, UUID playerId) {
+        try (Connection connection = getConnection()) {
+            migrateMapNow(connection, normalizedMap);
+            int mapId = mapId(connection, normalizedMap, false);
+            if (mapId < 0) {
+                return false;
+            }
+
+            byte[] playerKey = uuidBytes(playerId);
+            boolean previousAutoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            int removed = 0;
+
+            try (PreparedStatement moveFinished = connection.prepareStatement(moveFinishedPlayerSql);
+                 PreparedStatement moveUnfinished = connection.prepareStatement(moveUnfinishedPlayerSql);
+                 PreparedStatement deleteFinished = connection.prepareStatement(DELETE_PLAYER_TIME_SQL);
+                 PreparedStatement deleteUnfinished = connection.prepareStatement(DELETE_UNFINISHED_PLAYER_SQL)) {
+
+                moveFinished.setInt(1, mapId);
+                moveFinished.setBytes(2, playerKey);
+                moveFinished.executeUpdate();
+
+                moveUnfinished.setInt(1, mapId);
+                moveUnfinished.setBytes(2, playerKey);
+                moveUnfinished.executeUpdate();
+
+                deleteFinished.setInt(1, mapId);
+                deleteFinished.setBytes(2, playerKey);
+                removed += deleteFinished.executeUpdate();
+
+                deleteUnfinished.setInt(1, mapId);
+                deleteUnfinished.setBytes(2, playerKey);
+                removed += deleteUnfinished.executeUpdate();
+
+                connection.commit();
+                return removed > 0;
+            } catch (SQLException exception) {
+                connection.rollback();
+                throw exception;
+            } finally {
+                connection.setAutoCommit(previousAutoCommit);
+            }
+
+        } catch (SQLException exception) {
+            logger.log(Level.SEVERE, "Impossibile eliminare il tempo dal database", exception);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean resetMap(String mapName) {
+        if (mapName == null) {
+            return false;
+        }
+        String normalizedMap = normalizeKey(mapName);
+
+        synchronized (flushLock) {
+            boolean droppedPending = false;
+            synchronized (pendingRuns) {
+                Iterator<PendingKey> iterator = pendingRuns.keySet().iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().mapKey().equals(normalizedMap)) {
+                        iterator.remove();
+                        droppedPending = true;
+                    }
+                }
+            }
+            return deleteMapTimes(normalizedMap) || droppedPending;
+        }
+    }
+
+    private boolean deleteMapTimes(String normalizedMap) {
+        try (Connection connection = getConnection()) {
+            migrateMapNow(connection, normalizedMap);
+            int mapId = mapId(connection, normalizedMap, false);
+            if (mapId < 0) {
+                return false;
+            }
+
+            boolean previousAutoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            int removed = 0;
+
+            try (PreparedStatement moveFinished = connection.prepareStatement(moveFinishedMapSql);
+                 PreparedStatement moveUnfinished = connection.prepareStatement(moveUnfinishedMapSql);
+                 PreparedStatement deleteFinished = connection.prepareStatement(DELETE_MAP_TIMES_SQL);
+                 PreparedStatement deleteUnfinished = connection.prepareStatement(DELETE_UNFINISHED_MAP_SQL)) {
+
+                moveFinished.setInt(1, mapId);
+                moveFinished.executeUpdate();
+
+                moveUnfinished.setInt(1, mapId);
+                moveUnfinished.executeUpdate();
+
+                deleteFinished.setInt(1, mapId);
+                removed += deleteFinished.executeUpdate();
+
+                deleteUnfinished.setInt(1, mapId);
+                removed += deleteUnfinished.executeUpdate();
+
+                connection.commit();
+                return removed > 0;
+            } catch (SQLException exception) {
+                connection.rollback();
+                throw exception;
+            } finally {
+                connection.setAutoCommit(previousAutoCommit);
+            }
+        } catch (SQLException exception) {
+            logger.log(Level.SEVERE, "Impossibile eliminare i tempi della mappa dal database", exception);
+            return false;
+        }
+    }
+
+    @Override
+    public OptionalLong getBestTime(String mapName, UUID playerId) {
+        if (mapName == null || playerId == null) {
+            return OptionalLong.empty();
+        }
+
+        String normalizedMap = normalizeKey(mapName);
+        OptionalLong pending = pendingBestTime(normalizedMap, playerId);
+        try (Connection connection = getConnection()) {
+            int mapId = mapId(connection, normalizedMap, false);
+            if (mapId < 0) {
+                return pending;
+            }
+
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_BEST_TIME_SQL)) {
+                statement.setInt(1, mapId);
+                statement.setBytes(2, uuidBytes(playerId));
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (resultSet.next()) {
+                        long stored = resultSet.getLong(1);
+                        return OptionalLong.of(pending.isPresent() ? Math.min(stored, pending.getAsLong()) : stored);
+                    }
+                }
+            }
+        } catch (SQLException exception) {
+            logger.log(Level.SEVERE, "Impossibile leggere il tempo dal database", exception);
+        }
+        return pending;
+    }
+
+    @Override
+    public OptionalInt getRank(String mapName, UUID playerId) {
+        if (mapName == null || playerId == null) {
+            return OptionalInt.empty();
+        }
+
+        try (Connection connection = getConnection()) {
+            int mapId = mapId(connection, normalizeKey(mapName), false);
+            if (mapId < 0) {
+                return OptionalInt.empty();
+            }
+
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_RANK_SQL)) {
+                statement.setInt(1, mapId);
+                statement.setBytes(2, uuidBytes(playerId));
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (resultSet.next()) {
+                        return OptionalInt.of(resultSet.getInt(1));
+                    }
+                }
+            }
+        } catch (SQLException exception) {
+            logger.log(Level.SEVERE, "Impossibile calcolare la posizione nel database", exception);
+        }
+        return OptionalInt.empty();
+    }
+
+    @Override
+    public Optional<StatsManager.LeaderboardEntry> getTopEntry(String mapName, int position) {
+        if (mapName == null || position <= 0) {
+            return Optional.empty();
+        }
+
+        try (Connection connection = getConnection()) {
+            int mapId = mapId(connection, normalizeKey(mapName), false);
+            if (mapId < 0) {
+                return Optional.empty();
+            }
+
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_TOP_SQL)) {
+                statement.setInt(1, mapId);
+                statement.setInt(2, position - 1);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (resultSet.next()) {
+                        UUID playerId = uuidFrom(resultSet.getBytes(1));
+                        if (playerId == null) {
+                            return Optional.empty();
+                        }
+                        String name = resultSet.getString(2);
+                        long nanos = resultSet.getLong(3);
+                        return Optional.of(new StatsManager.LeaderboardEntry(playerId, fallbackName(playerId, name), nanos));
+                    }
+                }
+            }
+        } catch (SQLException exception) {
+            logger.log(Level.SEVERE, "Impossibile recuperare il podio dal database", exception);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Classifica completa, compresi i tempi ancora in coda per la scrittura differita, senza doverli salvare prima.
+     * Se il database non risponde lancia {@link IllegalStateException}: una classifica vuota o parziale
+     * verrebbe scambiata per quella vera (ad esempio dalla cache).
+     */
+    @Override
+    public List<StatsManager.LeaderboardEntry> getEntries(String mapName) {
+        if (mapName == null) {
+            return Collections.emptyList();
+        }
+
+        String normalizedMap = normalizeKey(mapName);
+        java.util.Map<UUID, StatsManager.LeaderboardEntry> entries = new HashMap<>();
+        // Con flushLock un blocco già tolto dalla coda ma non ancora scritto non può sfuggire alla lettura.
+        synchronized (flushLock) {
+            try (Connection connection = getConnection()) {
+                int mapId = mapId(connection, normalizedMap, false);
+                if (mapId >= 0) {
+                    try (PreparedStatement statement = connection.prepareStatement(SELECT_ALL_SQL)) {
+                        statement.setInt(1, mapId);
+                        try (ResultSet resultSet = statement.executeQuery()) {
+                            while (resultSet.next()) {
+                                UUID playerId = uuidFrom(resultSet.getBytes(1));
+                                if (playerId == null) {
+                                    continue;
+                                }
+                                String name = resultSet.getString(2);
+                                long nanos = resultSet.getLong(3);
+                                entries.put(playerId, new StatsManager.LeaderboardEntry(playerId, fallbackName(playerId, name), nanos));
+                            }
+                        }
+                    }
+                }
+            } catch (SQLException exception) {
+                logger.log(Level.SEVERE, "Impossibile leggere la classifica dal database", exception);
+                throw new IllegalStateException("Impossibile leggere la classifica dal database", exception);
+            }
+
+            synchronized (pendingRuns) {
+                for (java.util.Map.Entry<PendingKey, PendingRun> pending : pendingRuns.entrySet()) {
+                    if (!pending.getKey().mapKey().equals(normalizedMap)) {
+                        continue;
+                    }
+                    UUID playerId = pending.getKey().playerId();
+                    PendingRun run = pending.getValue();
+                    StatsManager.LeaderboardEntry stored = entries.get(playerId);
+                    if (stored == null || run.nanos() < stored.timeNanos()) {
+                        entries.put(playerId, new StatsManager.LeaderboardEntry(playerId,
+                                fallbackName(playerId, run.playerName()), run.nanos()));
+                    }
+                }
+            }
+        }
+
+        List<StatsManager.LeaderboardEntry> sorted = new ArrayList<>(entries.values());
+        sorted.sort((first, second) -> {
+            int comparison = Long.compare(first.timeNanos(), second.timeNanos());
+            return comparison != 0 ? comparison : Leaderboard.compareIds(first.playerId(), second.playerId());
+        });
+        return Collections.unmodifiableList(sorted);
+    }
+
+    @Override
+    public List<StatsManager.LeaderboardEntry> getTopEntries(String mapName, int limit) {
+        if (mapName == null || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        List<StatsManager.LeaderboardEntry> entries = new ArrayList<>(limit);
+        try (Connection connection = getConnection()) {
+            int mapId = mapId(connection, normalizeKey(mapName), false);
+            if (mapId < 0) {
+                return Collections.emptyList();
+            }
+
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_TOP_N_SQL)) {
+                statement.setInt(1, mapId);
+                statement.setInt(2, limit);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        UUID playerId = uuidFrom(resultSet.getBytes(1));
+                        if (playerId == null) {
+                            continue;
+                        }
+                        entries.add(new StatsManager.LeaderboardEntry(playerId, fallbackName(playerId, resultSet.getString(2)),
+                                resultSet.getLong(3)));
+                    }
+                }
+            }
+        } catch (SQLException exception) {
+            logger.log(Level.SEVERE, "Impossibile recuperare il podio dal database", exception);
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+    @Override
+    public void saveOngoingRun(String mapName, UUID playerId, String playerName, long nanos) {
+        if (mapName == null || mapName.isEmpty() || playerId == null || nanos < 0L) {
+            return;
+        }
+
+        String normalizedMap = normalizeKey(mapName);
+        String resolvedName = resolvePlayerName(playerId, playerName);
+
+        // Un tempo in coda cancellerebbe la corsa salvata qui al prossimo flush.
+        flushPendingRuns();
+
+        try (Connection connection = getConnection()) {
+            int mapId = mapId(connection, normalizedMap, true);
+            byte[] playerKey = uuidBytes(playerId);
+            boolean previousAutoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement playerStatement = connection.prepareStatement(upsertPlayerSql);
+                 PreparedStatement timeStatement = connection.prepareStatement(upsertUnfinishedTimeSql)) {
+
+                playerStatement.setBytes(1, playerKey);
+                playerStatement.setString(2, resolvedName);
+                playerStatement.executeUpdate();
+
+                timeStatement.setInt(1, mapId);
+                timeStatement.setBytes(2, playerKey);
+                timeStatement.setLong(3, nanos);
+                timeStatement.executeUpdate();
+
+                connection.commit();
+            } catch (SQLException exception) {
+                connection.rollback();
+                throw exception;
+            } finally {
+                connection.setAutoCommit(previousAutoCommit);
+            }
+        } catch (SQLException exception) {
+            logger.log(Level.SEVERE, "Impossibile registrare il tempo nel database", exception);
+        }
+    }
+
+    @Override
+    public List<StatsManager.OngoingRun> getAllOngoingRuns() {
+        flushPendingRuns();
+        List<StatsManager.OngoingRun> runs = new ArrayList<>();
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_ALL_UNFINISHED_SQL);
+             ResultSet resultSet = statement.executeQuery()) {
+
+            while (resultSet.next()) {
+                String mapKey = resultSet.getString(1);
+                UUID playerId = uuidFrom(resultSet.getBytes(2));
+                if (mapKey == null || playerId == null) {
+                    continue;
+                }
+                long nanos = resultSet.getLong(3);
+                String name = resultSet.getString(4);
+                runs.add(new StatsManager.OngoingRun(mapKey, playerId, fallbackName(playerId, name), nanos));
+            }
+        } catch (SQLException exception) {
+            logger.log(Level.SEVERE, "Impossibile recuperare le corse attive dal database", exception);
+        }
+        return Collections.unmodifiableList(runs);
+    }
+
+    @Override
+    public void close() {
+        if (migrationExecutor != null) {
+            migrationExecutor.shutdown();
+            try {
+                migrationExecutor.awaitTermination(5L, TimeUnit.SECONDS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            migrationExecutor = null;
+            migration = null;
+        }
+        if (flushExecutor != null) {
+            flushExecutor.shutdown();
+            try {
+                flushExecutor.awaitTermination(5L, TimeUnit.SECONDS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            flushExecutor = null;
+        }
+        flushPendingRuns();
+
+        if (dataSource != null) {
+            dataSource.close();
+            dataSource = null;
+        }
+    }
+
+    private Connection getConnection() throws SQLException {
+        HikariDataSource current = dataSource;
+        if (current == null) {
+            throw new SQLException("Pool di connessioni non inizializzato");
+        }
+        return current.getConnection();
+    }
+
+    private HikariDataSource createDataSource() {
+        DatabaseSettings.PoolSettings pool = settings.pool();
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("zCrono-" + settings.dialect().displayName());
+        config.setJdbcUrl(settings.jdbcUrl());
+        if (settings.username() != null) {
+            config.setUsername(settings.username());
+            config.setPassword(settings.password());
+        }
+        config.setMinimumIdle(pool.minimumIdle());
+        config.setMaximumPoolSize(pool.maximumSize());
+        config.setConnectionTimeout(pool.connectionTimeoutMillis());
+        config.setValidationTimeout(pool.validationTimeoutMillis());
+        config.setMaxLifetime(pool.maxLifetimeMillis());
+        config.setLeakDetectionThreshold(pool.leakDetectionMillis());
+        // Se il database non risponde all'avvio il pool viene creato comunque e riprova alla prima query.
+        config.setInitializationFailTimeout(-1L);
+
+        if (settings.dialect() == SqlDialect.SQLITE) {
+            // WAL: le letture non bloccano la scrittura e ogni commit aggiunge solo le pagine modificate.
+            config.addDataSourceProperty("journal_mode", "WAL");
+            config.addDataSourceProperty("synchronous", "NORMAL");
+            config.addDataSourceProperty("busy_timeout", Long.toString(pool.connectionTimeoutMillis()));
+            return new HikariDataSource(config);
+        }
+
+        boolean cacheStatements = pool.statementCacheSize() > 0;
+        config.addDataSourceProperty("cachePrepStmts", Boolean.toString(cacheStatements));
+        config.addDataSourceProperty("useServerPrepStmts", Boolean.toString(cacheStatements));
+        config.addDataSourceProperty("prepStmtCacheSize", Integer.toString(pool.statementCacheSize()));
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", Integer.toString(pool.statementCacheSqlLimit()));
+        config.addDataSourceProperty("cacheServerConfiguration", "true");
+        config.addDataSourceProperty("useLocalSessionState", "true");
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        return new HikariDataSource(config);
+    }
+
+    private static void loadDriver(SqlDialect dialect) {
+        try {
+            Class.forName(dialect.driverClass());
+        } catch (ClassNotFoundException ignored) {
+        }
+    }
+
+    private String normalizeKey(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * UUID come 16 byte big-endian, il formato delle colonne BINARY(16).
+     */
+    static byte[] uuidBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    static UUID uuidFrom(byte[] bytes) {
+        if (bytes == null || bytes.length != 16) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private String resolvePlayerName(UUID playerId, String provided) {
+        if (provided != null && !provided.isEmpty()) {
+            return provided;
+        }
+        OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(playerId);
+        String name = offlinePlayer.getName();
+        if (name != null && !name.isEmpty()) {
+            return name;
+        }
+        return playerId.toString();
+    }
+
+    private String fallbackName(UUID playerId, String stored) {
+        if (stored != null && !stored.isEmpty()) {
+            return stored;
+        }
+        OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(playerId);
+        String name = offlinePlayer.getName();
+        if (name != null && !name.isEmpty()) {
+            return name;
+        }
+        return playerId.toString();
+    }
+
+    private record PendingKey(String mapKey, UUID playerId) {
+    }
+
+    private record PendingRun(String playerName, long nanos) {
+    }
+}
@@ -0,0 +1,148 @@
+package com.zKraft.map;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Registro delle modifiche alle statistiche, scritto in coda a data.yml.
+ * Ogni riga è un'operazione con i campi separati da tab; la prima riga indica la generazione del file,
+ * così al caricamento si rileggono solo i registri non ancora inclusi in data.yml.
+ */
+final class StatsJournal {
+
+    private static final String HEADER = "zcrono-journal";
+
+    private final File file;
+    private final long generation;
+    private final FileChannel channel;
+    private final Writer writer;
+    private int records;
+    private boolean unsynced;
+
+    private StatsJournal(File file, long generation) throws IOException {
+        this.file = file;
+        this.generation = generation;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.writer = new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8);
+        writer.write(HEADER + '\t' + generation + '\n');
+        sync();
+    }
+
+    /**
+     * Crea un registro vuoto, sostituendo l'eventuale file esistente.
+     */
+    static StatsJournal create(File file, long generation) throws IOException {
+        return new StatsJournal(file, generation);
+    }
+
+    /**
+     * Rilegge il registro se la sua generazione è successiva a {@code afterGeneration}.
+     * Le righe incomplete (es. scrittura interrotta da un crash) vengono ignorate.
+     *
+     * @return la generazione del registro riletto, oppure -1 se il file manca o è già incluso
+     */
+    static long replay(File file, long afterGeneration, Consumer<String[]> operation) throws IOException {
+        if (!file.exists()) {
+            return -1L;
+        }
+
+        String content = Files.readString(file.toPath(), StandardCharsets.UTF_8);
+        int end = content.lastIndexOf('\n');
+        if (end < 0) {
+            return -1L;
+        }
+
+        String[] lines = content.substring(0, end).split("\n", -1);
+        String[] header = lines[0].split("\t", -1);
+        if (header.length != 2 || !HEADER.equals(header[0])) {
+            throw new IOException("Intestazione non valida in " + file.getName());
+        }
+
+        long generation;
+        try {
+            generation = Long.parseLong(header[1]);
+        } catch (NumberFormatException exception) {
+            throw new IOException("Generazione non valida in " + file.getName(), exception);
+        }
+        if (generation <= afterGeneration) {
+            return -1L;
+        }
+
+        for (int index = 1; index < lines.length; index++) {
+            if (!lines[index].isEmpty()) {
+                operation.accept(lines[index].split("\t", -1));
+            }
+        }
+        return generation;
+    }
+
+    synchronized void append(String... fields) throws IOException {
+        StringBuilder line = new StringBuilder(64);
+        for (int index = 0; index < fields.length; index++) {
+            if (index > 0) {
+                line.append('\t');
+            }
+            String field = fields[index];
+            if (field != null) {
+                for (int offset = 0; offset < field.length(); offset++) {
+                    char current = field.charAt(offset);
+                    line.append(current == '\t' || current == '\n' || current == '\r' ? ' ' : current);
+                }
+            }
+        }
+        line.append('\n');
+        writer.write(line.toString());
+        records++;
+        unsynced = true;
+    }
+
+    /**
+     * Porta su disco le righe scritte dall'ultima chiamata.
+     */
+    synchronized void sync() throws IOException {
+        if (!channel.isOpen()) {
+            return;
+        }
+        writer.flush();
+        channel.force(false);
+        unsynced = false;
+    }
+
+    synchronized boolean hasUnsynced() {
+        return unsynced;
+    }
+
+    synchronized int records() {
+        return records;
+    }
+
+    long generation() {
+        return generation;
+    }
+
+    /**
+     * Chiude questo registro e lo sposta in {@code target}, in attesa che venga incluso in data.yml.
+     */
+    synchronized void moveTo(File target) throws IOException {
+        close();
+        Files.move(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    synchronized void close() throws IOException {
+        if (!channel.isOpen()) {
+            return;
+        }
+        sync();
+        writer.close();
+    }
+}
@@ -7,10 +7,12 @@ import org.bukkit.plugin.java.JavaPlugin;
 import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 
 /**
@@ -18,17 +20,32 @@ import java.util.logging.Level;
  */
 public class StatsManager {
 
+    // Operazioni SQL che possono restare in coda prima di essere eseguite dal thread chiamante.
+    // Letture in attesa sul thread IO oltre le quali le nuove vengono rifiutate; le scritture non hanno limite.
+    private static final int IO_MAX_PENDING_READS = 1024;
+
     private final JavaPlugin plugin;
+    private final RuntimeScheduler scheduler;
     private StatsStorage storage;
+    private AsyncStatsStorage asyncStorage;
+    // false quando lo storage lavora sul thread principale: lì non si può attendere un future, che verrebbe
+    // completato solo da un task successivo dello stesso thread.
+    private boolean ioThread;
+    // Letto dai placeholder, anche da thread diversi da quello principale.
+    private volatile LeaderboardSnapshots snapshots = new LeaderboardSnapshots(0, 0L);
+    private RuntimeScheduler.Task snapshotTask = RuntimeScheduler.NO_TASK;
 
     public StatsManager(JavaPlugin plugin) {
         this.plugin = plugin;
+        this.scheduler = RuntimeScheduler.create(plugin);
     }
 
     public void load() {
         plugin.saveDefaultConfig();
         storage = createStorage();
         storage.load();
+        asyncStorage = createAsyncStorage(storage);
+        startSnapshots();
     }
 
     public void save() {
@@ -37,46 +54,126 @@ public class StatsManager {
         }
     }
 
-    public void recordRun(com.zKraft.map.Map map, Player player, Duration duration) {
-        if (storage == null || map == null || player == null || duration == null || duration.isNegative()) {
-            return;
+    /**
+     * Completa le operazioni ancora in coda e salva; da chiamare allo spegnimento del plugin.
+     */
+    public void shutdown() {
+        snapshotTask.cancel();
+        snapshotTask = RuntimeScheduler.NO_TASK;
+        snapshots.clear();
+        if (asyncStorage != null) {
+            asyncStorage.close();
+        }
+        save();
+        if (storage != null) {
+            storage.close();
+        }
+    }
+
+    /**
+     * Può essere chiamato da qualsiasi thread (su Folia, da quello della regione del giocatore): lo storage
+     * viene modificato solo sul thread globale o sul thread IO. Il future vale {@code true} se il tempo è
+     * il nuovo miglior tempo del giocatore e viene completato sul thread principale (su Folia, sul thread globale).
+     */
+    public CompletableFuture<Boolean> recordRun(com.zKraft.map.Map map, Player player, Duration duration) {
+        if (asyncStorage == null || map == null || player == null || duration == null || duration.isNegative()) {
+            return CompletableFuture.completedFuture(false);
         }
 
         long nanos = duration.toNanos();
         if (nanos <= 0L) {
-            return;
+            return CompletableFuture.completedFuture(false);
         }
 
-        storage.recordRun(map.getName(), player.getUniqueId(), player.getName(), nanos);
+        return onMainThread(asyncStorage.recordRun(map.getName(), player.getUniqueId(), player.getName(), nanos)
+                .thenApply(improved -> refreshSnapshot(map.getName(), improved)));
     }
 
-    public boolean recordManualRun(String mapName, UUID playerId, String playerName, long nanos) {
-        if (storage == null || mapName == null || playerId == null || nanos <= 0L) {
-            return false;
+    public CompletableFuture<Boolean> recordManualRun(String mapName, UUID playerId, String playerName, long nanos) {
+        if (asyncStorage == null || mapName == null || playerId == null || nanos <= 0L) {
+            return CompletableFuture.completedFuture(false);
         }
 
-        storage.recordRun(mapName, playerId, playerName, nanos);
-        return true;
+        return onMainThread(asyncStorage.recordRun(mapName, playerId, playerName, nanos)
+                .thenApply(improved -> refreshSnapshot(mapName, improved)));
     }
 
-    public boolean resetPlayer(String mapName, UUID playerId) {
-        if (storage == null || mapName == null || playerId == null) {
-            return false;
+    public CompletableFuture<Boolean> resetPlayer(String mapName, UUID playerId) {
+        if (asyncStorage == null || mapName == null || playerId == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return onMainThread(asyncStorage.resetPlayer(mapName, playerId).thenApply(changed -> refreshSnapshot(mapName, changed)));
+    }
+
+    public CompletableFuture<Boolean> resetMap(String mapName) {
+        if (asyncStorage == null || mapName == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        // Dopo il reset il podio è vuoto: lo snapshot viene tolto invece di essere riletto.
+        return onMainThread(asyncStorage.resetMap(mapName).thenApply(changed -> {
+            snapshots.remove(mapName);
+            return changed;
+        }));
+    }
+
+    /**
+     * Dimentica il podio precalcolato di una mappa eliminata.
+     */
+    public void forgetMap(String mapName) {
+        if (mapName != null) {
+            snapshots.remove(mapName);
+        }
+    }
+
+    public CompletableFuture<OptionalLong> getBestTimeAsync(String mapName, UUID playerId) {
+        if (asyncStorage == null || mapName == null || playerId == null) {
+            return CompletableFuture.completedFuture(OptionalLong.empty());
+        }
+        return onMainThread(asyncStorage.getBestTime(mapName, playerId));
+    }
+
+    public CompletableFuture<OptionalInt> getRankAsync(String mapName, UUID playerId) {
+        if (asyncStorage == null || mapName == null || playerId == null) {
+            return CompletableFuture.completedFuture(OptionalInt.empty());
         }
-        return storage.resetPlayer(mapName, playerId);
+        return onMainThread(asyncStorage.getRank(mapName, playerId));
     }
 
-    public boolean resetMap(String mapName) {
-        if (storage == null || mapName == null) {
-            return false;
+    public CompletableFuture<Optional<LeaderboardEntry>> getTopEntryAsync(String mapName, int position) {
+        if (asyncStorage == null || mapName == null || position <= 0) {
+            return CompletableFuture.completedFuture(Optional.empty());
         }
-        return storage.resetMap(mapName);
+        return onMainThread(asyncStorage.getTopEntry(mapName, position));
     }
 
+    /**
+     * Podio già formattato della mappa, leggibile da qualsiasi thread; {@code null} finché non è stato calcolato.
+     */
+    public LeaderboardSnapshots.Snapshot getSnapshot(String mapName) {
+        if (mapName == null) {
+            return null;
+        }
+        return snapshots.get(mapName);
+    }
+
+    /**
+     * Numero di posizioni tenute nei podi di {@link #getSnapshot(String)}.
+     */
+    public int getSnapshotSize() {
+        return snapshots.size();
+    }
+
+    /**
+     * Lettura immediata per i placeholder: con la cache delle classifiche non attende mai il database
+     * e finché la classifica non è pronta il risultato è vuoto.
+     */
     public OptionalLong getBestTime(String mapName, UUID playerId) {
         if (storage == null || mapName == null || playerId == null) {
             return OptionalLong.empty();
         }
+        if (storage instanceof CachingStatsStorage caching) {
+            return caching.getCachedBestTime(mapName, playerId);
+        }
         return storage.getBestTime(mapName, playerId);
     }
 
@@ -84,6 +181,9 @@ public class StatsManager {
         if (storage == null || mapName == null || playerId == null) {
             return OptionalInt.empty();
         }
+        if (storage instanceof CachingStatsStorage caching) {
+            return caching.getCachedRank(mapName, playerId);
+        }
         return storage.getRank(mapName, playerId);
     }
 
@@ -91,21 +191,118 @@ public class StatsManager {
         if (storage == null || mapName == null || position <= 0) {
             return Optional.empty();
         }
+        if (storage instanceof CachingStatsStorage caching) {
+            return caching.getCachedTopEntry(mapName, position);
+        }
         return storage.getTopEntry(mapName, position);
     }
 
+    /**
+     * Con gli storage SQL passa dalla coda asincrona per restare ordinato rispetto ai tempi già accodati,
+     * ma attende il risultato: viene usato solo allo spegnimento e al reload.
+     */
     public void saveOngoingRun(String mapName, UUID playerId, String playerName, long nanos) {
-        if (storage == null || mapName == null || playerId == null || nanos < 0L) {
+        if (asyncStorage == null || mapName == null || playerId == null || nanos < 0L) {
             return;
         }
-        storage.saveOngoingRun(mapName, playerId, playerName, nanos);
+        if (!ioThread) {
+            storage.saveOngoingRun(mapName, playerId, playerName, nanos);
+            return;
+        }
+        asyncStorage.saveOngoingRun(mapName, playerId, playerName, nanos).join();
     }
 
     public List<OngoingRun> getAllOngoingRuns() {
-        if (storage == null) {
+        if (asyncStorage == null) {
             return Collections.emptyList();
         }
-        return storage.getAllOngoingRuns();
+        if (!ioThread) {
+            return storage.getAllOngoingRuns();
+        }
+        return asyncStorage.getAllOngoingRuns().join();
+    }
+
+    private void startSnapshots() {
+        snapshotTask.cancel();
+        ConfigurationSection section = plugin.getConfig().getConfigurationSection("placeholders");
+        int size = section != null ? Math.max(0, section.getInt("top-size", 10)) : 10;
+        long refreshInterval = section != null ? Math.max(1L, section.getLong("refresh-interval-ticks", 20L)) : 20L;
+        long maxAge = section != null ? Math.max(0L, section.getLong("max-age-seconds", 60L)) : 60L;
+
+        snapshots = new LeaderboardSnapshots(size, maxAge * 1000L);
+        snapshotTask = size > 0
+                ? scheduler.runTimer(this::refreshSnapshots, refreshInterval, refreshInterval)
+                : RuntimeScheduler.NO_TASK;
+    }
+
+    /**
+     * Rilegge in background i podi richiesti dai placeholder ma mancanti o troppo vecchi.
+     */
+    private void refreshSnapshots() {
+        LeaderboardSnapshots current = snapshots;
+        for (String mapKey : current.drainDirty()) {
+            refreshSnapshot(current, mapKey);
+        }
+    }
+
+    /**
+     * Dopo un nuovo miglior tempo o il reset di un giocatore il podio della mappa viene riletto subito;
+     * restituisce {@code changed}.
+     */
+    private boolean refreshSnapshot(String mapName, boolean changed) {
+        if (changed) {
+            refreshSnapshot(snapshots, mapName.toLowerCase(Locale.ROOT));
+        }
+        return changed;
+    }
+
+    private void refreshSnapshot(LeaderboardSnapshots target, String mapKey) {
+        if (asyncStorage == null || target.size() <= 0) {
+            return;
+        }
+
+        // La versione viene presa prima della lettura: una lettura più lenta non sostituisce un podio più recente.
+        long version = target.nextVersion();
+        asyncStorage.getTopEntries(mapKey, target.size()).whenComplete((entries, error) -> {
+            if (error != null) {
+                target.invalidate(mapKey);
+                plugin.getLogger().log(Level.WARNING, "Impossibile aggiornare il podio della mappa " + mapKey, error);
+                return;
+            }
+            target.publish(mapKey, version, entries);
+        });
+    }
+
+    private AsyncStatsStorage createAsyncStorage(StatsStorage storage) {
+        StatsStorage backend = storage instanceof CachingStatsStorage caching ? caching.delegate() : storage;
+        ioThread = backend instanceof SqlStatsStorage;
+        if (ioThread) {
+            return new ExecutorAsyncStatsStorage(storage, ExecutorAsyncStatsStorage.createIoExecutor(),
+                    plugin.getLogger(), IO_MAX_PENDING_READS);
+        }
+        // Lo storage YAML lavora in memoria: resta sul thread principale, come il resto del plugin.
+        return new ExecutorAsyncStatsStorage(storage, this::runOnMainThread, plugin.getLogger());
+    }
+
+    private <T> CompletableFuture<T> onMainThread(CompletableFuture<T> future) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        future.whenComplete((value, error) -> runOnMainThread(() -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        }));
+        return result;
+    }
+
+    private void runOnMainThread(Runnable task) {
+        // Durante lo spegnimento non si possono più pianificare task.
+        if (!plugin.isEnabled()) {
+            task.run();
+            return;
+        }
+        scheduler.runGlobal(task);
     }
 
     private StatsStorage createStorage() {
@@ -115,13 +312,62 @@ public class StatsManager {
         if (useMysql) {
             try {
                 DatabaseSettings settings = readDatabaseSettings(persistenceSection.getConfigurationSection("mysql"));
-                return new MySqlStatsStorage(plugin, settings);
+                return withCache(new SqlStatsStorage(plugin, settings), persistenceSection);
             } catch (IllegalArgumentException exception) {
                 plugin.getLogger().log(Level.SEVERE, "Configurazione MySQL non valida, ricado su YAML", exception);
             }
         }
 
-        return new YamlStatsStorage(plugin);
+        String format = persistenceSection != null ? persistenceSection.getString("storage", "yaml") : "yaml";
+        if ("binary".equalsIgnoreCase(format)) {
+            return new MappedStatsStorage(plugin);
+        }
+        if ("sqlite".equalsIgnoreCase(format)) {
+            return withCache(new SqlStatsStorage(plugin, readSqliteSettings(persistenceSection.getConfigurationSection("sqlite"))),
+                    persistenceSection);
+        }
+        if (format != null && !"yaml".equalsIgnoreCase(format)) {
+            plugin.getLogger().warning("Formato di persistenza sconosciuto: " + format + ", uso YAML");
+        }
+
+        return new YamlStatsStorage(plugin, readYamlSettings(persistenceSection));
+    }
+
+    /**
+     * Mette la cache delle classifiche davanti agli storage SQL, se {@code cache.max-maps} è maggiore di 0.
+     */
+    private StatsStorage withCache(StatsStorage storage, ConfigurationSection persistenceSection) {
+        int maxMaps = Math.max(0, persistenceSection.getInt("cache.max-maps", 32));
+        if (maxMaps == 0) {
+            return storage;
+        }
+        long expireAfter = Math.max(0L, persistenceSection.getLong("cache.expire-after-ms", 0L));
+        return new CachingStatsStorage(storage, maxMaps, expireAfter);
+    }
+
+    private YamlStatsStorage.Settings readYamlSettings(ConfigurationSection persistenceSection) {
+        YamlStatsStorage.Settings defaults = YamlStatsStorage.Settings.DEFAULT;
+        ConfigurationSection section = persistenceSection != null ? persistenceSection.getConfigurationSection("yaml") : null;
+        if (section == null) {
+            return defaults;
+        }
+
+        YamlStatsStorage.SaveMode saveMode = YamlStatsStorage.SaveMode.fromConfig(section.getString("save-mode", "sync"));
+        long syncInterval = Math.max(10L, section.getLong("journal.sync-interval-ms", defaults.journalSyncIntervalMillis()));
+        int compactAfter = Math.max(100, section.getInt("journal.compact-after", defaults.journalCompactAfter()));
+        return new YamlStatsStorage.Settings(saveMode, syncInterval, compactAfter);
+    }
+
+    private DatabaseSettings readSqliteSettings(ConfigurationSection section) {
+        String fileName = section != null ? section.getString("file", "stats.db") : "stats.db";
+        if (isBlank(fileName)) {
+            fileName = "stats.db";
+        }
+
+        DatabaseSettings.WriteBehindSettings writeBehind = section != null
+                ? readWriteBehindSettings(section)
+                : DatabaseSettings.WriteBehindSettings.DEFAULT;
+        return DatabaseSettings.sqlite(new java.io.File(plugin.getDataFolder(), fileName), writeBehind);
     }
 
     private DatabaseSettings readDatabaseSettings(ConfigurationSection section) {
@@ -144,7 +390,51 @@ public class StatsManager {
             password = "";
         }
 
-        return new DatabaseSettings(host, port, database, username, password, useSsl);
+        return new DatabaseSettings(host, port, database, username, password, useSsl, readPoolSettings(section),
+                readWriteBehindSettings(section));
+    }
+
+    private DatabaseSettings.WriteBehindSettings readWriteBehindSettings(ConfigurationSection section) {
+        DatabaseSettings.WriteBehindSettings defaults = DatabaseSettings.WriteBehindSettings.DEFAULT;
+        ConfigurationSection writeBehind = section.getConfigurationSection("write-behind");
+        if (writeBehind == null) {
+            return defaults;
+        }
+
+        long flushInterval = Math.max(0L, writeBehind.getLong("flush-interval-ms", defaults.flushIntervalMillis()));
+        int maxPending = Math.max(1, writeBehind.getInt("max-pending", defaults.maxPending()));
+        return new DatabaseSettings.WriteBehindSettings(flushInterval, maxPending);
+    }
+
+    private DatabaseSettings.PoolSettings readPoolSettings(ConfigurationSection section) {
+        DatabaseSettings.PoolSettings defaults = DatabaseSettings.PoolSettings.DEFAULT;
+        ConfigurationSection pool = section.getConfigurationSection("pool");
+        ConfigurationSection cache = section.getConfigurationSection("statement-cache");
+
+        int maximumSize = defaults.maximumSize();
+        int minimumIdle = defaults.minimumIdle();
+        long connectionTimeout = defaults.connectionTimeoutMillis();
+        long validationTimeout = defaults.validationTimeoutMillis();
+        long maxLifetime = defaults.maxLifetimeMillis();
+        long leakDetection = defaults.leakDetectionMillis();
+        if (pool != null) {
+            maximumSize = Math.max(1, pool.getInt("maximum-size", maximumSize));
+            minimumIdle = Math.max(0, Math.min(maximumSize, pool.getInt("minimum-idle", minimumIdle)));
+            connectionTimeout = Math.max(250L, pool.getLong("connection-timeout-ms", connectionTimeout));
+            validationTimeout = Math.max(250L, Math.min(connectionTimeout, pool.getLong("validation-timeout-ms", validationTimeout)));
+            maxLifetime = Math.max(30000L, pool.getLong("max-lifetime-ms", maxLifetime));
+            leakDetection = Math.max(0L, pool.getLong("leak-detection-ms", leakDetection));
+        }
+
+        int cacheSize = defaults.statementCacheSize();
+        int cacheSqlLimit = defaults.statementCacheSqlLimit();
+        if (cache != null) {
+            cacheSize = Math.max(0, cache.getInt("size", cacheSize));
+            cacheSqlLimit = Math.max(0, cache.getInt("sql-limit", cacheSqlLimit));
+        }
+
+        return new DatabaseSettings.PoolSettings(minimumIdle, maximumSize, connectionTimeout, validationTimeout,
+                maxLifetime, leakDetection, cacheSize, cacheSqlLimit);
     }
 
     private boolean isBlank(String value) {
@@ -1,5 +1,6 @@
 package com.zKraft.map;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.OptionalInt;
@@ -26,7 +27,28 @@ public interface StatsStorage {
 
     List<StatsManager.LeaderboardEntry> getEntries(String mapName);
 
+    /**
+     * Le prime {@code limit} posizioni della classifica, in ordine.
+     */
+    default List<StatsManager.LeaderboardEntry> getTopEntries(String mapName, int limit) {
+        List<StatsManager.LeaderboardEntry> entries = new ArrayList<>();
+        for (int position = 1; position <= limit; position++) {
+            Optional<StatsManager.LeaderboardEntry> entry = getTopEntry(mapName, position);
+            if (entry.isEmpty()) {
+                break;
+            }
+            entries.add(entry.get());
+        }
+        return entries;
+    }
+
     void saveOngoingRun(String mapName, UUID playerId, String playerName, long nanos);
 
     List<StatsManager.OngoingRun> getAllOngoingRuns();
+
+    /**
+     * Chiude le risorse dello storage (es. connessioni); chiamato dopo l'ultimo {@link #save()}.
+     */
+    default void close() {
+    }
 }
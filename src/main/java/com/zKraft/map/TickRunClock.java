@@ -0,0 +1,58 @@
+package com.zKraft.map;
+
+import com.destroystokyo.paper.event.server.ServerTickStartEvent;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.java.JavaPlugin;
+
+/**
+ * Tempo basato sui tick del server (50 ms l'uno): un tick lento non allunga le corse.
+ * Con {@code subTick} aggiunge il tempo reale trascorso nel tick corrente, limitato a un tick.
+ */
+public final class TickRunClock implements RunClock, Listener {
+
+    private static final long TICK_NANOS = 50_000_000L;
+
+    private final JavaPlugin plugin;
+    private final boolean subTick;
+    private volatile TickBase tick = new TickBase(0L, 0L);
+
+    public TickRunClock(JavaPlugin plugin, boolean subTick) {
+        this.plugin = plugin;
+        this.subTick = subTick;
+    }
+
+    @Override
+    public void start() {
+        tick = new TickBase(plugin.getServer().getCurrentTick() * TICK_NANOS, System.nanoTime());
+        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+    }
+
+    @Override
+    public void stop() {
+        HandlerList.unregisterAll(this);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onTickStart(ServerTickStartEvent event) {
+        tick = new TickBase(event.getTickNumber() * TICK_NANOS, System.nanoTime());
+    }
+
+    @Override
+    public long nanoTime() {
+        TickBase current = tick;
+        if (!subTick) {
+            return current.baseNanos();
+        }
+        return current.baseNanos() + Math.min(Math.max(System.nanoTime() - current.startedAt(), 0L), TICK_NANOS - 1L);
+    }
+
+    /**
+     * Inizio del tick corrente, pubblicato con una sola scrittura: chi legge da un altro thread
+     * non vede mai la base di un tick insieme all'istante d'inizio di un altro.
+     */
+    private record TickBase(long baseNanos, long startedAt) {
+    }
+}
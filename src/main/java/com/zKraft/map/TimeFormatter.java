@@ -1,13 +1,16 @@
 package com.zKraft.map;
 
 import java.time.Duration;
-import java.util.Locale;
 
 /**
  * Utility per il Time Format
  */
 public final class TimeFormatter {
 
+    private static final String ZERO = "00:00.000";
+    // Buffer riusato da ogni thread, per non allocarne uno a ogni chiamata.
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(16));
+
     private TimeFormatter() {
     }
 
@@ -18,15 +21,66 @@ public final class TimeFormatter {
         return format(duration.toNanos());
     }
 
+    /**
+     * Formatta come {@code mm:ss.mmm} senza {@link String#format}; l'unica allocazione è la stringa restituita.
+     */
     public static String format(long nanos) {
         if (nanos <= 0L) {
-            return "00:00.000";
+            return ZERO;
+        }
+
+        StringBuilder builder = BUILDER.get();
+        builder.setLength(0);
+        return formatTo(builder, nanos).toString();
+    }
+
+    /**
+     * Aggiunge il tempo in fondo a {@code target} scrivendo le cifre una per una: se il builder ha già spazio
+     * non alloca niente.
+     */
+    public static StringBuilder formatTo(StringBuilder target, long nanos) {
+        if (nanos <= 0L) {
+            return target.append(ZERO);
         }
 
         long totalMillis = nanos / 1_000_000L;
         long minutes = totalMillis / 60_000L;
-        long seconds = (totalMillis % 60_000L) / 1_000L;
-        long millis = totalMillis % 1_000L;
-        return String.format(Locale.ROOT, "%02d:%02d.%03d", minutes, seconds, millis);
+        int seconds = (int) ((totalMillis % 60_000L) / 1_000L);
+        int millis = (int) (totalMillis % 1_000L);
+        if (minutes < 10L) {
+            target.append('0');
+        }
+        // Oltre 99 minuti i minuti non stanno in due cifre e vengono scritti per intero.
+        return target.append(minutes)
+                .append(':')
+                .append((char) ('0' + seconds / 10))
+                .append((char) ('0' + seconds % 10))
+                .append('.')
+                .append((char) ('0' + millis / 100))
+                .append((char) ('0' + millis / 10 % 10))
+                .append((char) ('0' + millis % 10));
+    }
+
+    /**
+     * Ricorda l'ultimo tempo formattato: finché il millisecondo non cambia restituisce la stessa stringa.
+     * Può essere usato da più thread.
+     */
+    public static final class Cache {
+        private volatile Rendered last = new Rendered(0L, ZERO);
+
+        public String format(long nanos) {
+            long millis = nanos <= 0L ? 0L : nanos / 1_000_000L;
+            Rendered current = last;
+            if (current.millis() == millis) {
+                return current.text();
+            }
+
+            String text = TimeFormatter.format(nanos);
+            last = new Rendered(millis, text);
+            return text;
+        }
+
+        private record Rendered(long millis, String text) {
+        }
     }
 }
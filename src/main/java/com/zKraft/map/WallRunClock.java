@@ -0,0 +1,17 @@
+package com.zKraft.map;
+
+/**
+ * Tempo reale: include anche eventuali lag del server durante la corsa.
+ */
+public final class WallRunClock implements RunClock {
+
+    public static final WallRunClock INSTANCE = new WallRunClock();
+
+    private WallRunClock() {
+    }
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+}
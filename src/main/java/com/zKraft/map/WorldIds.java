@@ -0,0 +1,34 @@
+package com.zKraft.map;
+
+import org.bukkit.World;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Assegna a ogni mondo un identificativo intero stabile, per confrontare posizioni senza oggetti.
+ */
+public final class WorldIds {
+
+    public static final int NONE = -1;
+
+    private static final java.util.Map<UUID, Integer> IDS = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private WorldIds() {
+    }
+
+    public static int of(World world) {
+        if (world == null) {
+            return NONE;
+        }
+
+        UUID worldId = world.getUID();
+        Integer id = IDS.get(worldId);
+        if (id != null) {
+            return id;
+        }
+        return IDS.computeIfAbsent(worldId, unused -> NEXT_ID.getAndIncrement());
+    }
+}
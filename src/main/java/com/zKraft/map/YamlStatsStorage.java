@@ -8,51 +8,142 @@ import org.bukkit.plugin.java.JavaPlugin;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 import java.util.logging.Level;
 
 /**
- * Gestore salvataggio su Yaml
+ * Gestore salvataggio su Yaml.
+ * Le modifiche arrivano dal thread principale (su Folia, quello globale); le letture anche dai placeholder
+ * sui thread delle regioni, quindi classifiche e nomi sono protetti da un lock di lettura/scrittura.
  */
 public class YamlStatsStorage implements StatsStorage {
 
     private final JavaPlugin plugin;
+    private final Settings settings;
     private final File dataFile;
-    private final Map<String, Map<UUID, Long>> mapTimes = new HashMap<>();
+    private final File journalFile;
+    private final File compactingFile;
+    private final Map<String, Leaderboard> mapTimes = new HashMap<>();
     private final Map<String, Map<UUID, Long>> ongoingRuns = new HashMap<>();
     private final Map<String, Map<UUID, DeletedEntry>> deletedRuns = new HashMap<>();
-    private final Map<UUID, String> playerNames = new HashMap<>();
-    private boolean dirty;
+    // Nomi divisi in gruppi per UUID: a ogni salvataggio vengono copiati solo i gruppi modificati.
+    private static final int NAME_BUCKETS = 64;
+    private final List<Map<UUID, String>> playerNames = new ArrayList<>(NAME_BUCKETS);
+    // Copie immutabili usate dai salvataggi, rifatte solo per mappe e gruppi di nomi cambiati.
+    // Usate solo dal thread che modifica i dati.
+    private final CopyCache<String, Long> timesCopies = new CopyCache<>();
+    private final CopyCache<String, Long> ongoingCopies = new CopyCache<>();
+    private final CopyCache<String, DeletedEntry> deletedCopies = new CopyCache<>();
+    private final CopyCache<Integer, String> nameCopies = new CopyCache<>();
+    private final ReadWriteLock dataLock = new ReentrantReadWriteLock();
+    private volatile boolean dirty;
+    // Ultima generazione del registro già inclusa in data.yml.
+    private long snapshotGeneration;
+
+    private volatile StatsJournal journal;
+    private ScheduledExecutorService ioExecutor;
+    private final RuntimeScheduler scheduler;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private volatile boolean compactionDisabled;
+    private final Object snapshotLock = new Object();
+    private long writtenGeneration;
+    // Ultimo data.yml compattato, tenuto solo dal thread di I/O: a ogni compattazione gli viene applicato
+    // il registro ruotato, così il thread del server non deve copiare tutti i dati.
+    private YamlStatsStorage compactedState;
+
+    // Stato del salvataggio asincrono: al massimo una scrittura alla volta, le richieste intermedie si uniscono.
+    private static final int SAVE_IDLE = 0;
+    private static final int SAVE_WRITING = 1;
+    private static final int SAVE_REQUESTED = 2;
+    private final AtomicInteger asyncSaveState = new AtomicInteger(SAVE_IDLE);
 
     public YamlStatsStorage(JavaPlugin plugin) {
+        this(plugin, Settings.DEFAULT);
+    }
+
+    public YamlStatsStorage(JavaPlugin plugin, Settings settings) {
         this.plugin = plugin;
+        this.settings = settings;
         this.dataFile = new File(plugin.getDataFolder(), "data.yml");
+        this.journalFile = new File(plugin.getDataFolder(), "data.journal");
+        this.compactingFile = new File(plugin.getDataFolder(), "data.journal.compacting");
+        this.scheduler = RuntimeScheduler.create(plugin);
+        for (int bucket = 0; bucket < NAME_BUCKETS; bucket++) {
+            playerNames.add(new HashMap<>());
+        }
     }
 
     @Override
     public void load() {
         ensureDataFolder();
+        dataLock.writeLock().lock();
+        try {
+            loadData();
+        } finally {
+            dataLock.writeLock().unlock();
+        }
+    }
+
+    private void loadData() {
         mapTimes.clear();
         ongoingRuns.clear();
         deletedRuns.clear();
-        playerNames.clear();
+        for (Map<UUID, String> names : playerNames) {
+            names.clear();
+        }
+        timesCopies.clear();
+        ongoingCopies.clear();
+        deletedCopies.clear();
+        nameCopies.clear();
         dirty = false;
+        snapshotGeneration = 0L;
+        compactedState = null;
+        synchronized (snapshotLock) {
+            writtenGeneration = 0L;
+        }
 
-        if (!dataFile.exists()) {
-            return;
+        if (dataFile.exists()) {
+            readSnapshot(YamlConfiguration.loadConfiguration(dataFile));
         }
 
-        YamlConfiguration configuration = YamlConfiguration.loadConfiguration(dataFile);
+        boolean recovered = recoverJournals();
+        if (recovered && settings.saveMode() == SaveMode.JOURNAL) {
+            openJournal();
+        } else if (settings.saveMode() == SaveMode.ASYNC) {
+            ioExecutor = createIoExecutor();
+        }
+    }
+
+    private void readSnapshot(YamlConfiguration configuration) {
+        snapshotGeneration = configuration.getLong("journal-generation", 0L);
 
         ConfigurationSection playersSection = configuration.getConfigurationSection("players");
         if (playersSection != null) {
@@ -61,7 +152,7 @@ public class YamlStatsStorage implements StatsStorage {
                     UUID uuid = UUID.fromString(key);
                     String name = playersSection.getString(key);
                     if (name != null && !name.isEmpty()) {
-                        playerNames.put(uuid, name);
+                        names(uuid).put(uuid, name);
                     }
                 } catch (IllegalArgumentException ignored) {
                 }
@@ -81,7 +172,7 @@ public class YamlStatsStorage implements StatsStorage {
                     continue;
                 }
 
-                Map<UUID, Long> times = new HashMap<>();
+                Leaderboard times = new Leaderboard();
                 for (String uuidKey : timesSection.getKeys(false)) {
                     try {
                         UUID uuid = UUID.fromString(uuidKey);
@@ -165,63 +256,56 @@ public class YamlStatsStorage implements StatsStorage {
                 }
             }
         }
+
+        mapTimes.keySet().forEach(timesCopies::markDirty);
+        ongoingRuns.keySet().forEach(ongoingCopies::markDirty);
+        deletedRuns.keySet().forEach(deletedCopies::markDirty);
+        for (int bucket = 0; bucket < NAME_BUCKETS; bucket++) {
+            nameCopies.markDirty(bucket);
+        }
     }
 
     @Override
     public void save() {
-        if (!dirty && dataFile.exists()) {
+        if (journal != null) {
+            syncJournal();
             return;
         }
 
-        ensureDataFolder();
-
-        YamlConfiguration configuration = new YamlConfiguration();
-
-        ConfigurationSection playersSection = configuration.createSection("players");
-        for (Map.Entry<UUID, String> entry : playerNames.entrySet()) {
-            playersSection.set(entry.getKey().toString(), entry.getValue());
-        }
-
-        ConfigurationSection mapsSection = configuration.createSection("maps");
-        for (Map.Entry<String, Map<UUID, Long>> entry : mapTimes.entrySet()) {
-            ConfigurationSection mapSection = mapsSection.createSection(entry.getKey());
-            ConfigurationSection timesSection = mapSection.createSection("times");
-            for (Map.Entry<UUID, Long> timeEntry : entry.getValue().entrySet()) {
-                timesSection.set(timeEntry.getKey().toString(), timeEntry.getValue());
-            }
+        awaitPendingWrites();
+        if (!dirty && dataFile.exists()) {
+            return;
         }
 
-        ConfigurationSection ongoingSection = configuration.createSection("ongoing");
-        for (Map.Entry<String, Map<UUID, Long>> entry : ongoingRuns.entrySet()) {
-            ConfigurationSection runSection = ongoingSection.createSection(entry.getKey());
-            for (Map.Entry<UUID, Long> timeEntry : entry.getValue().entrySet()) {
-                runSection.set(timeEntry.getKey().toString(), timeEntry.getValue());
-            }
+        Snapshot snapshot = snapshot(snapshotGeneration);
+        dirty = false;
+        if (!writeSnapshot(snapshot)) {
+            dirty = true;
         }
+    }
 
-        ConfigurationSection deletedSection = configuration.createSection("deleted");
-        for (Map.Entry<String, Map<UUID, DeletedEntry>> entry : deletedRuns.entrySet()) {
-            ConfigurationSection mapSection = deletedSection.createSection(entry.getKey());
-            for (Map.Entry<UUID, DeletedEntry> deletedEntry : entry.getValue().entrySet()) {
-                DeletedEntry value = deletedEntry.getValue();
-                if (value == null || value.isEmpty()) {
-                    continue;
-                }
-                ConfigurationSection playerSection = mapSection.createSection(deletedEntry.getKey().toString());
-                if (value.getFinished() != null) {
-                    playerSection.set("finished", value.getFinished());
-                }
-                if (value.getUnfinished() != null) {
-                    playerSection.set("unfinished", value.getUnfinished());
+    @Override
+    public void close() {
+        if (ioExecutor != null) {
+            ioExecutor.shutdown();
+            try {
+                if (!ioExecutor.awaitTermination(30L, TimeUnit.SECONDS)) {
+                    plugin.getLogger().warning("Compattazione di data.yml non completata entro 30 secondi.");
                 }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
             }
+            ioExecutor = null;
         }
 
-        try {
-            configuration.save(dataFile);
-            dirty = false;
-        } catch (IOException exception) {
-            plugin.getLogger().log(Level.SEVERE, "Impossibile salvare data.yml", exception);
+        StatsJournal current = journal;
+        journal = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException exception) {
+                plugin.getLogger().log(Level.SEVERE, "Impossibile chiudere il registro di data.yml", exception);
+            }
         }
     }
 
@@ -232,7 +316,20 @@ public class YamlStatsStorage implements StatsStorage {
         }
 
         String mapKey = normalizeKey(mapName);
-        Map<UUID, Long> times = mapTimes.computeIfAbsent(mapKey, unused -> new HashMap<>());
+        boolean changed;
+        dataLock.writeLock().lock();
+        try {
+            changed = applyRecordRun(mapKey, playerId, playerName, nanos);
+        } finally {
+            dataLock.writeLock().unlock();
+        }
+        if (changed) {
+            persist("R", mapKey, playerId.toString(), playerName, Long.toString(nanos));
+        }
+    }
+
+    private boolean applyRecordRun(String mapKey, UUID playerId, String playerName, long nanos) {
+        Leaderboard times = mapTimes.computeIfAbsent(mapKey, unused -> new Leaderboard());
 
         boolean changed = updatePlayerName(playerId, playerName);
 
@@ -241,19 +338,18 @@ public class YamlStatsStorage implements StatsStorage {
             if (ongoing.isEmpty()) {
                 ongoingRuns.remove(mapKey);
             }
+            ongoingCopies.markDirty(mapKey);
             changed = true;
         }
 
-        Long currentBest = times.get(playerId);
-        if (currentBest == null || nanos < currentBest) {
+        OptionalLong currentBest = times.get(playerId);
+        if (currentBest.isEmpty() || nanos < currentBest.getAsLong()) {
             times.put(playerId, nanos);
+            timesCopies.markDirty(mapKey);
             changed = true;
         }
 
-        if (changed) {
-            dirty = true;
-            save();
-        }
+        return changed;
     }
 
     @Override
@@ -263,13 +359,30 @@ public class YamlStatsStorage implements StatsStorage {
         }
 
         String mapKey = normalizeKey(mapName);
+        boolean changed;
+        dataLock.writeLock().lock();
+        try {
+            changed = applyResetPlayer(mapKey, playerId);
+        } finally {
+            dataLock.writeLock().unlock();
+        }
+        if (!changed) {
+            return false;
+        }
+
+        persist("P", mapKey, playerId.toString());
+        return true;
+    }
+
+    private boolean applyResetPlayer(String mapKey, UUID playerId) {
         boolean changed = false;
 
-        Map<UUID, Long> times = mapTimes.get(mapKey);
+        Leaderboard times = mapTimes.get(mapKey);
         if (times != null) {
             Long removed = times.remove(playerId);
             if (removed != null) {
                 storeDeletedTime(mapKey, playerId, removed, true);
+                timesCopies.markDirty(mapKey);
                 changed = true;
                 if (times.isEmpty()) {
                     mapTimes.remove(mapKey);
@@ -282,6 +395,7 @@ public class YamlStatsStorage implements StatsStorage {
             Long removed = ongoing.remove(playerId);
             if (removed != null) {
                 storeDeletedTime(mapKey, playerId, removed, false);
+                ongoingCopies.markDirty(mapKey);
                 changed = true;
                 if (ongoing.isEmpty()) {
                     ongoingRuns.remove(mapKey);
@@ -289,13 +403,7 @@ public class YamlStatsStorage implements StatsStorage {
             }
         }
 
-        if (!changed) {
-            return false;
-        }
-
-        dirty = true;
-        save();
-        return true;
+        return changed;
     }
 
     @Override
@@ -305,15 +413,32 @@ public class YamlStatsStorage implements StatsStorage {
         }
 
         String mapKey = normalizeKey(mapName);
+        boolean changed;
+        dataLock.writeLock().lock();
+        try {
+            changed = applyResetMap(mapKey);
+        } finally {
+            dataLock.writeLock().unlock();
+        }
+        if (!changed) {
+            return false;
+        }
 
-        Map<UUID, Long> removed = mapTimes.remove(mapKey);
+        persist("M", mapKey);
+        return true;
+    }
+
+    private boolean applyResetMap(String mapKey) {
+        Leaderboard removed = mapTimes.remove(mapKey);
         Map<UUID, Long> removedOngoing = ongoingRuns.remove(mapKey);
         if (removed == null && removedOngoing == null) {
             return false;
         }
+        timesCopies.markDirty(mapKey);
+        ongoingCopies.markDirty(mapKey);
 
         if (removed != null) {
-            for (Map.Entry<UUID, Long> entry : removed.entrySet()) {
+            for (Map.Entry<UUID, Long> entry : removed.times().entrySet()) {
                 storeDeletedTime(mapKey, entry.getKey(), entry.getValue(), true);
             }
         }
@@ -324,8 +449,6 @@ public class YamlStatsStorage implements StatsStorage {
             }
         }
 
-        dirty = true;
-        save();
         return true;
     }
 
@@ -335,13 +458,17 @@ public class YamlStatsStorage implements StatsStorage {
             return OptionalLong.empty();
         }
 
-        Map<UUID, Long> times = mapTimes.get(normalizeKey(mapName));
-        if (times == null) {
-            return OptionalLong.empty();
-        }
+        dataLock.readLock().lock();
+        try {
+            Leaderboard times = mapTimes.get(normalizeKey(mapName));
+            if (times == null) {
+                return OptionalLong.empty();
+            }
 
-        Long value = times.get(playerId);
-        return value != null ? OptionalLong.of(value) : OptionalLong.empty();
+            return times.get(playerId);
+        } finally {
+            dataLock.readLock().unlock();
+        }
     }
 
     @Override
@@ -350,14 +477,17 @@ public class YamlStatsStorage implements StatsStorage {
             return OptionalInt.empty();
         }
 
-        List<StatsManager.LeaderboardEntry> entries = getEntries(mapName);
-        for (int index = 0; index < entries.size(); index++) {
-            if (entries.get(index).playerId().equals(playerId)) {
-                return OptionalInt.of(index + 1);
+        dataLock.readLock().lock();
+        try {
+            Leaderboard times = mapTimes.get(normalizeKey(mapName));
+            if (times == null) {
+                return OptionalInt.empty();
             }
-        }
 
-        return OptionalInt.empty();
+            return times.rankOf(playerId);
+        } finally {
+            dataLock.readLock().unlock();
+        }
     }
 
     @Override
@@ -366,12 +496,22 @@ public class YamlStatsStorage implements StatsStorage {
             return Optional.empty();
         }
 
-        List<StatsManager.LeaderboardEntry> entries = getEntries(mapName);
-        if (position > entries.size()) {
-            return Optional.empty();
-        }
+        dataLock.readLock().lock();
+        try {
+            Leaderboard times = mapTimes.get(normalizeKey(mapName));
+            if (times == null) {
+                return Optional.empty();
+            }
 
-        return Optional.of(entries.get(position - 1));
+            Leaderboard.Entry entry = times.entryAt(position);
+            if (entry == null) {
+                return Optional.empty();
+            }
+
+            return Optional.of(new StatsManager.LeaderboardEntry(entry.playerId(), resolveName(entry.playerId()), entry.nanos()));
+        } finally {
+            dataLock.readLock().unlock();
+        }
     }
 
     @Override
@@ -380,19 +520,28 @@ public class YamlStatsStorage implements StatsStorage {
             return Collections.emptyList();
         }
 
-        Map<UUID, Long> times = mapTimes.get(normalizeKey(mapName));
-        if (times == null || times.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        List<Map.Entry<UUID, Long>> entries = new ArrayList<>(times.entrySet());
-        entries.sort(leaderboardComparator());
+        dataLock.readLock().lock();
+        try {
+            Leaderboard times = mapTimes.get(normalizeKey(mapName));
+            if (times == null || times.isEmpty()) {
+                return Collections.emptyList();
+            }
 
-        List<StatsManager.LeaderboardEntry> leaderboard = new ArrayList<>(entries.size());
-        for (Map.Entry<UUID, Long> entry : entries) {
-            leaderboard.add(new StatsManager.LeaderboardEntry(entry.getKey(), resolveName(entry.getKey()), entry.getValue()));
+            List<StatsManager.LeaderboardEntry> leaderboard = new ArrayList<>(times.size());
+            for (Leaderboard.Entry entry : times.entries()) {
+                leaderboard.add(new StatsManager.LeaderboardEntry(entry.playerId(), resolveName(entry.playerId()), entry.nanos()));
+            }
+            return Collections.unmodifiableList(leaderboard);
+        } finally {
+            dataLock.readLock().unlock();
         }
-        return Collections.unmodifiableList(leaderboard);
+    }
+
+    /**
+     * Chiavi delle mappe con almeno un tempo, usate per importare i dati in un altro formato.
+     */
+    Set<String> getMapKeys() {
+        return Collections.unmodifiableSet(mapTimes.keySet());
     }
 
     @Override
@@ -402,27 +551,420 @@ public class YamlStatsStorage implements StatsStorage {
         }
 
         String mapKey = normalizeKey(mapName);
+        dataLock.writeLock().lock();
+        try {
+            applySaveOngoingRun(mapKey, playerId, playerName, nanos);
+        } finally {
+            dataLock.writeLock().unlock();
+        }
+        persist("O", mapKey, playerId.toString(), playerName, Long.toString(nanos));
+    }
+
+    private void applySaveOngoingRun(String mapKey, UUID playerId, String playerName, long nanos) {
         Map<UUID, Long> runs = ongoingRuns.computeIfAbsent(mapKey, unused -> new HashMap<>());
         runs.put(playerId, nanos);
+        ongoingCopies.markDirty(mapKey);
         updatePlayerName(playerId, playerName);
-        dirty = true;
-        save();
     }
 
     @Override
     public List<StatsManager.OngoingRun> getAllOngoingRuns() {
-        if (ongoingRuns.isEmpty()) {
-            return Collections.emptyList();
+        dataLock.readLock().lock();
+        try {
+            if (ongoingRuns.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            List<StatsManager.OngoingRun> runs = new ArrayList<>();
+            for (Map.Entry<String, Map<UUID, Long>> entry : ongoingRuns.entrySet()) {
+                String mapKey = entry.getKey();
+                for (Map.Entry<UUID, Long> playerEntry : entry.getValue().entrySet()) {
+                    runs.add(new StatsManager.OngoingRun(mapKey, playerEntry.getKey(), resolveName(playerEntry.getKey()), playerEntry.getValue()));
+                }
+            }
+            return Collections.unmodifiableList(runs);
+        } finally {
+            dataLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Registra una modifica: in modalità journal viene aggiunta in coda al registro,
+     * altrimenti data.yml viene riscritto subito.
+     */
+    private void persist(String... operation) {
+        StatsJournal current = journal;
+        if (current == null) {
+            dirty = true;
+            if (settings.saveMode() == SaveMode.ASYNC && ioExecutor != null) {
+                requestAsyncSave();
+            } else {
+                save();
+            }
+            return;
+        }
+
+        try {
+            current.append(operation);
+        } catch (IOException exception) {
+            plugin.getLogger().log(Level.SEVERE, "Impossibile scrivere nel registro di data.yml, torno al salvataggio completo", exception);
+            fallBackToSnapshots();
+            return;
+        }
+
+        if (current.records() >= settings.journalCompactAfter()) {
+            compact();
+        }
+    }
+
+    private void applyOperation(String[] fields) {
+        try {
+            switch (fields[0]) {
+                case "R" -> applyRecordRun(fields[1], UUID.fromString(fields[2]), fields[3], Long.parseLong(fields[4]));
+                case "P" -> applyResetPlayer(fields[1], UUID.fromString(fields[2]));
+                case "M" -> applyResetMap(fields[1]);
+                case "O" -> applySaveOngoingRun(fields[1], UUID.fromString(fields[2]), fields[3], Long.parseLong(fields[4]));
+                default -> plugin.getLogger().warning("Operazione sconosciuta nel registro di data.yml: " + fields[0]);
+            }
+        } catch (RuntimeException exception) {
+            plugin.getLogger().warning("Riga non valida nel registro di data.yml: " + String.join(" ", fields));
         }
+    }
 
-        List<StatsManager.OngoingRun> runs = new ArrayList<>();
-        for (Map.Entry<String, Map<UUID, Long>> entry : ongoingRuns.entrySet()) {
-            String mapKey = entry.getKey();
-            for (Map.Entry<UUID, Long> playerEntry : entry.getValue().entrySet()) {
-                runs.add(new StatsManager.OngoingRun(mapKey, playerEntry.getKey(), resolveName(playerEntry.getKey()), playerEntry.getValue()));
+    /**
+     * Applica i registri rimasti dall'ultima esecuzione e li include in data.yml.
+     *
+     * @return false se data.yml non è stato riscritto e i registri vanno conservati
+     */
+    private boolean recoverJournals() {
+        long generation = snapshotGeneration;
+        boolean replayed = false;
+        for (File file : new File[]{compactingFile, journalFile}) {
+            try {
+                long replayedGeneration = StatsJournal.replay(file, generation, this::applyOperation);
+                if (replayedGeneration > 0L) {
+                    generation = replayedGeneration;
+                    replayed = true;
+                }
+            } catch (IOException exception) {
+                plugin.getLogger().log(Level.SEVERE, "Impossibile rileggere " + file.getName(), exception);
             }
         }
-        return Collections.unmodifiableList(runs);
+
+        if (replayed && !writeSnapshot(snapshot(generation))) {
+            // I registri restano su disco; i salvataggi completi useranno comunque la nuova generazione.
+            plugin.getLogger().severe("Registro di data.yml non compattato, uso il salvataggio completo fino al riavvio.");
+            snapshotGeneration = generation;
+            dirty = true;
+            return false;
+        }
+
+        snapshotGeneration = generation;
+        deleteJournalFiles();
+        return true;
+    }
+
+    private void openJournal() {
+        try {
+            journal = StatsJournal.create(journalFile, snapshotGeneration + 1L);
+        } catch (IOException exception) {
+            plugin.getLogger().log(Level.SEVERE, "Impossibile creare il registro di data.yml, uso il salvataggio completo", exception);
+            journal = null;
+            return;
+        }
+
+        ioExecutor = createIoExecutor();
+        long interval = settings.journalSyncIntervalMillis();
+        ioExecutor.scheduleWithFixedDelay(this::syncJournal, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private static ScheduledExecutorService createIoExecutor() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "zCrono-data");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Copia i dati sul thread principale e li scrive in background. Se una scrittura è già in corso,
+     * ne viene eseguita un'altra sola al suo termine con i dati aggiornati.
+     */
+    private void requestAsyncSave() {
+        while (true) {
+            int state = asyncSaveState.get();
+            if (state == SAVE_IDLE) {
+                if (asyncSaveState.compareAndSet(SAVE_IDLE, SAVE_WRITING)) {
+                    submitAsyncSave();
+                    return;
+                }
+            } else if (state == SAVE_WRITING) {
+                if (asyncSaveState.compareAndSet(SAVE_WRITING, SAVE_REQUESTED)) {
+                    return;
+                }
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void submitAsyncSave() {
+        ScheduledExecutorService executor = ioExecutor;
+        if (executor == null) {
+            // Storage già chiuso: i dati sono stati scritti dal salvataggio finale.
+            asyncSaveState.set(SAVE_IDLE);
+            return;
+        }
+
+        Snapshot snapshot = snapshot(snapshotGeneration);
+        dirty = false;
+        try {
+            executor.execute(() -> {
+                if (!writeSnapshot(snapshot)) {
+                    dirty = true;
+                }
+                finishAsyncSave();
+            });
+        } catch (RejectedExecutionException exception) {
+            // Storage in chiusura: ci pensa il salvataggio finale.
+            dirty = true;
+            asyncSaveState.set(SAVE_IDLE);
+        }
+    }
+
+    private void finishAsyncSave() {
+        if (asyncSaveState.compareAndSet(SAVE_WRITING, SAVE_IDLE)) {
+            return;
+        }
+
+        // Sono arrivate altre modifiche durante la scrittura: la copia va fatta sul thread principale.
+        asyncSaveState.set(SAVE_WRITING);
+        if (!plugin.isEnabled()) {
+            asyncSaveState.set(SAVE_IDLE);
+            return;
+        }
+        scheduler.runGlobal(this::submitAsyncSave);
+    }
+
+    private void awaitPendingWrites() {
+        ScheduledExecutorService executor = ioExecutor;
+        if (executor == null || executor.isShutdown()) {
+            return;
+        }
+
+        try {
+            executor.submit(() -> {
+            }).get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RejectedExecutionException ignored) {
+        }
+    }
+
+    private void syncJournal() {
+        StatsJournal current = journal;
+        if (current == null || !current.hasUnsynced()) {
+            return;
+        }
+
+        try {
+            current.sync();
+        } catch (IOException exception) {
+            plugin.getLogger().log(Level.SEVERE, "Impossibile sincronizzare il registro di data.yml", exception);
+        }
+    }
+
+    /**
+     * Chiude il registro corrente e riscrive data.yml in background: il registro ruotato viene riapplicato
+     * all'ultimo data.yml compattato, senza copiare i dati sul thread del server.
+     */
+    private void compact() {
+        if (compactionDisabled || !compacting.compareAndSet(false, true)) {
+            return;
+        }
+
+        StatsJournal current = journal;
+        long generation = current.generation();
+        try {
+            current.moveTo(compactingFile);
+            journal = StatsJournal.create(journalFile, generation + 1L);
+        } catch (IOException exception) {
+            plugin.getLogger().log(Level.SEVERE, "Impossibile ruotare il registro di data.yml, torno al salvataggio completo", exception);
+            compacting.set(false);
+            fallBackToSnapshots();
+            return;
+        }
+
+        ioExecutor.execute(() -> {
+            try {
+                Snapshot snapshot = compactedSnapshot(generation);
+                if (snapshot != null && writeSnapshot(snapshot)) {
+                    if (!compactingFile.delete() && compactingFile.exists()) {
+                        plugin.getLogger().warning("Impossibile eliminare " + compactingFile.getName());
+                    }
+                } else {
+                    // Il registro ruotato resta su disco e verrà riletto al prossimo avvio.
+                    compactionDisabled = true;
+                }
+            } finally {
+                compacting.set(false);
+            }
+        });
+    }
+
+    /**
+     * Applica il registro ruotato all'ultimo stato compattato (letto da data.yml la prima volta).
+     * Va chiamato solo dal thread di I/O; restituisce {@code null} se il registro non può essere riletto.
+     */
+    private Snapshot compactedSnapshot(long generation) {
+        try {
+            if (compactedState == null) {
+                YamlStatsStorage state = new YamlStatsStorage(plugin, settings);
+                if (dataFile.exists()) {
+                    state.readSnapshot(YamlConfiguration.loadConfiguration(dataFile));
+                }
+                compactedState = state;
+            }
+
+            StatsJournal.replay(compactingFile, compactedState.snapshotGeneration, compactedState::applyOperation);
+            compactedState.snapshotGeneration = generation;
+            return compactedState.snapshot(generation);
+        } catch (IOException exception) {
+            plugin.getLogger().log(Level.SEVERE, "Impossibile rileggere " + compactingFile.getName(), exception);
+            compactedState = null;
+            return null;
+        }
+    }
+
+    private void fallBackToSnapshots() {
+        StatsJournal current = journal;
+        journal = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException ignored) {
+            }
+        }
+
+        long generation = current != null ? current.generation() : snapshotGeneration;
+        if (writeSnapshot(snapshot(generation))) {
+            snapshotGeneration = generation;
+            dirty = false;
+            if (journalFile.exists() && !journalFile.delete()) {
+                plugin.getLogger().warning("Impossibile eliminare " + journalFile.getName());
+            }
+        } else {
+            dirty = true;
+        }
+    }
+
+    private void deleteJournalFiles() {
+        for (File file : new File[]{compactingFile, journalFile}) {
+            if (file.exists() && !file.delete()) {
+                plugin.getLogger().warning("Impossibile eliminare " + file.getName());
+            }
+        }
+    }
+
+    /**
+     * Copia dei dati da scrivere: vengono ricopiati solo le mappe e i gruppi di nomi cambiati dall'ultima copia,
+     * il resto è condiviso con le copie precedenti (immutabili).
+     */
+    private Snapshot snapshot(long generation) {
+        return new Snapshot(
+                nameCopies.refresh(playerNames::get, UnaryOperator.identity()),
+                timesCopies.refresh(mapKey -> {
+                    Leaderboard times = mapTimes.get(mapKey);
+                    return times != null ? times.times() : null;
+                }, UnaryOperator.identity()),
+                ongoingCopies.refresh(ongoingRuns::get, UnaryOperator.identity()),
+                deletedCopies.refresh(deletedRuns::get, DeletedEntry::copy),
+                generation);
+    }
+
+    /**
+     * Scrive data.yml su un file temporaneo e lo sostituisce con uno spostamento atomico.
+     * Una copia più vecchia di quella già scritta viene scartata.
+     */
+    private boolean writeSnapshot(Snapshot snapshot) {
+        synchronized (snapshotLock) {
+            if (snapshot.generation() < writtenGeneration) {
+                return true;
+            }
+            if (writeSnapshotFile(snapshot)) {
+                writtenGeneration = snapshot.generation();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private boolean writeSnapshotFile(Snapshot snapshot) {
+        ensureDataFolder();
+        File temporary = new File(dataFile.getParentFile(), dataFile.getName() + ".tmp");
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(toConfiguration(snapshot).saveToString().getBytes(StandardCharsets.UTF_8));
+            try (FileChannel channel = FileChannel.open(temporary.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary.toPath(), dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException exception) {
+            plugin.getLogger().log(Level.SEVERE, "Impossibile salvare data.yml", exception);
+            return false;
+        }
+    }
+
+    private static YamlConfiguration toConfiguration(Snapshot snapshot) {
+        YamlConfiguration configuration = new YamlConfiguration();
+        configuration.set("journal-generation", snapshot.generation());
+
+        ConfigurationSection playersSection = configuration.createSection("players");
+        for (Map<UUID, String> names : snapshot.playerNames().values()) {
+            for (Map.Entry<UUID, String> entry : names.entrySet()) {
+                playersSection.set(entry.getKey().toString(), entry.getValue());
+            }
+        }
+
+        ConfigurationSection mapsSection = configuration.createSection("maps");
+        for (Map.Entry<String, Map<UUID, Long>> entry : snapshot.mapTimes().entrySet()) {
+            ConfigurationSection mapSection = mapsSection.createSection(entry.getKey());
+            ConfigurationSection timesSection = mapSection.createSection("times");
+            for (Map.Entry<UUID, Long> timeEntry : entry.getValue().entrySet()) {
+                timesSection.set(timeEntry.getKey().toString(), timeEntry.getValue());
+            }
+        }
+
+        ConfigurationSection ongoingSection = configuration.createSection("ongoing");
+        for (Map.Entry<String, Map<UUID, Long>> entry : snapshot.ongoingRuns().entrySet()) {
+            ConfigurationSection runSection = ongoingSection.createSection(entry.getKey());
+            for (Map.Entry<UUID, Long> timeEntry : entry.getValue().entrySet()) {
+                runSection.set(timeEntry.getKey().toString(), timeEntry.getValue());
+            }
+        }
+
+        ConfigurationSection deletedSection = configuration.createSection("deleted");
+        for (Map.Entry<String, Map<UUID, DeletedEntry>> entry : snapshot.deletedRuns().entrySet()) {
+            ConfigurationSection mapSection = deletedSection.createSection(entry.getKey());
+            for (Map.Entry<UUID, DeletedEntry> deletedEntry : entry.getValue().entrySet()) {
+                DeletedEntry value = deletedEntry.getValue();
+                if (value == null || value.isEmpty()) {
+                    continue;
+                }
+                ConfigurationSection playerSection = mapSection.createSection(deletedEntry.getKey().toString());
+                if (value.getFinished() != null) {
+                    playerSection.set("finished", value.getFinished());
+                }
+                if (value.getUnfinished() != null) {
+                    playerSection.set("unfinished", value.getUnfinished());
+                }
+            }
+        }
+        return configuration;
     }
 
     private void storeDeletedTime(String mapKey, UUID playerId, long nanos, boolean finished) {
@@ -432,6 +974,7 @@ public class YamlStatsStorage implements StatsStorage {
 
         Map<UUID, DeletedEntry> entries = deletedRuns.computeIfAbsent(mapKey, unused -> new HashMap<>());
         DeletedEntry entry = entries.computeIfAbsent(playerId, unused -> new DeletedEntry());
+        deletedCopies.markDirty(mapKey);
         if (finished) {
             entry.setFinished(nanos);
         } else {
@@ -440,14 +983,8 @@ public class YamlStatsStorage implements StatsStorage {
         dirty = true;
     }
 
-    private Comparator<Map.Entry<UUID, Long>> leaderboardComparator() {
-        return Comparator.<Map.Entry<UUID, Long>>comparingLong(Map.Entry::getValue)
-                .thenComparing(entry -> resolveName(entry.getKey()).toLowerCase(Locale.ROOT))
-                .thenComparing(entry -> entry.getKey().toString());
-    }
-
     private String resolveName(UUID uuid) {
-        String stored = playerNames.get(uuid);
+        String stored = names(uuid).get(uuid);
         if (stored != null && !stored.isEmpty()) {
             return stored;
         }
@@ -466,8 +1003,20 @@ public class YamlStatsStorage implements StatsStorage {
             return false;
         }
 
-        String previous = playerNames.put(uuid, name);
-        return previous == null || !previous.equals(name);
+        String previous = names(uuid).put(uuid, name);
+        if (previous != null && previous.equals(name)) {
+            return false;
+        }
+        nameCopies.markDirty(nameBucket(uuid));
+        return true;
+    }
+
+    private Map<UUID, String> names(UUID uuid) {
+        return playerNames.get(nameBucket(uuid));
+    }
+
+    private static int nameBucket(UUID uuid) {
+        return uuid.hashCode() & (NAME_BUCKETS - 1);
     }
 
     private void ensureDataFolder() {
@@ -504,5 +1053,80 @@ public class YamlStatsStorage implements StatsStorage {
         boolean isEmpty() {
             return finished == null && unfinished == null;
         }
+
+        DeletedEntry copy() {
+            DeletedEntry copy = new DeletedEntry();
+            copy.finished = finished;
+            copy.unfinished = unfinished;
+            return copy;
+        }
+    }
+
+    /**
+     * Copie immutabili per chiave (mappa o gruppo di nomi): a ogni salvataggio vengono rifatte solo quelle
+     * segnate come modificate, le altre sono riusate così come sono.
+     */
+    private static final class CopyCache<K, V> {
+        private final Map<K, Map<UUID, V>> copies = new HashMap<>();
+        private final Set<K> dirty = new HashSet<>();
+
+        void markDirty(K key) {
+            dirty.add(key);
+        }
+
+        void clear() {
+            copies.clear();
+            dirty.clear();
+        }
+
+        /**
+         * @param source dati correnti della chiave, {@code null} se non esiste più
+         */
+        Map<K, Map<UUID, V>> refresh(Function<K, Map<UUID, V>> source, UnaryOperator<V> copyValue) {
+            for (K key : dirty) {
+                Map<UUID, V> current = source.apply(key);
+                if (current == null || current.isEmpty()) {
+                    copies.remove(key);
+                    continue;
+                }
+
+                Map<UUID, V> copy = new HashMap<>(current.size() * 4 / 3 + 1);
+                for (Map.Entry<UUID, V> entry : current.entrySet()) {
+                    copy.put(entry.getKey(), copyValue.apply(entry.getValue()));
+                }
+                copies.put(key, Collections.unmodifiableMap(copy));
+            }
+            dirty.clear();
+            return new HashMap<>(copies);
+        }
+    }
+
+    private record Snapshot(Map<Integer, Map<UUID, String>> playerNames, Map<String, Map<UUID, Long>> mapTimes,
+                            Map<String, Map<UUID, Long>> ongoingRuns, Map<String, Map<UUID, DeletedEntry>> deletedRuns,
+                            long generation) {
+    }
+
+    public enum SaveMode {
+        SYNC,
+        ASYNC,
+        JOURNAL;
+
+        public static SaveMode fromConfig(String value) {
+            if (value != null && value.trim().equalsIgnoreCase("journal")) {
+                return JOURNAL;
+            }
+            if (value != null && value.trim().equalsIgnoreCase("async")) {
+                return ASYNC;
+            }
+            return SYNC;
+        }
+    }
+
+    /**
+     * Impostazioni di salvataggio di data.yml.
+     */
+    public record Settings(SaveMode saveMode, long journalSyncIntervalMillis, int journalCompactAfter) {
+
+        public static final Settings DEFAULT = new Settings(SaveMode.SYNC, 200L, 5000);
     }
 }
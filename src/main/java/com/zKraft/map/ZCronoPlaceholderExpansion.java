@@ -7,16 +7,22 @@ import java.util.List;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * PlaceHolder API
  */
 public class ZCronoPlaceholderExpansion extends PlaceholderExpansion {
 
+    // Oltre questo numero di identificatori diversi la cache viene svuotata.
+    private static final int MAX_CACHED_IDENTIFIERS = 1024;
+
     private final com.zKraft.zCrono plugin;
     private final MapManager mapManager;
     private final StatsManager statsManager;
     private final MapRuntimeManager runtimeManager;
+    // Gli stessi identificatori arrivano di continuo da scoreboard e tab: vengono analizzati una volta sola.
+    private volatile ParsedCache parsedCache = new ParsedCache(0, new ConcurrentHashMap<>());
 
     public ZCronoPlaceholderExpansion(com.zKraft.zCrono plugin, MapManager mapManager, StatsManager statsManager,
                                       MapRuntimeManager runtimeManager) {
@@ -61,40 +67,103 @@ public class ZCronoPlaceholderExpansion extends PlaceholderExpansion {
             return "";
         }
 
+        ParsedPlaceholder placeholder = resolve(identifier);
+        return switch (placeholder.kind()) {
+            case BEST_TIME -> handleBestTime(player, placeholder.map());
+            case TOP -> handleTopComponent(placeholder, TopComponent.LINE);
+            case TOP_PLAYER -> handleTopComponent(placeholder, TopComponent.PLAYER);
+            case TOP_TIME -> handleTopComponent(placeholder, TopComponent.TIME);
+            case RANK -> handleRank(player, placeholder.map());
+            case LIVE -> handleLive(player, placeholder.map());
+            case INVALID -> "";
+        };
+    }
+
+    /**
+     * Identificatore già analizzato, con la mappa risolta; la cache viene svuotata quando cambiano le mappe.
+     */
+    private ParsedPlaceholder resolve(String identifier) {
+        int version = mapManager.getVersion();
+        ParsedCache cache = parsedCache;
+        if (cache.version() != version) {
+            // Una versione più vecchia, letta prima di un reload concorrente, non sostituisce la cache nuova.
+            if (version - cache.version() < 0) {
+                return parse(identifier);
+            }
+            cache = new ParsedCache(version, new ConcurrentHashMap<>());
+            parsedCache = cache;
+        }
+
+        ParsedPlaceholder placeholder = cache.entries().get(identifier);
+        if (placeholder != null) {
+            return placeholder;
+        }
+
+        placeholder = parse(identifier);
+        if (cache.entries().size() >= MAX_CACHED_IDENTIFIERS) {
+            cache.entries().clear();
+        }
+        cache.entries().put(identifier, placeholder);
+        return placeholder;
+    }
+
+    private ParsedPlaceholder parse(String identifier) {
         if (identifier.startsWith("besttime_")) {
-            return handleBestTime(player, identifier.substring("besttime_".length()));
+            return parseMap(PlaceholderKind.BEST_TIME, identifier.substring("besttime_".length()));
         }
 
         if (identifier.startsWith("top_player_")) {
-            return handleTopComponent(identifier.substring("top_player_".length()), TopComponent.PLAYER);
+            return parseTop(PlaceholderKind.TOP_PLAYER, identifier.substring("top_player_".length()));
         }
 
         if (identifier.startsWith("top_time_")) {
-            return handleTopComponent(identifier.substring("top_time_".length()), TopComponent.TIME);
+            return parseTop(PlaceholderKind.TOP_TIME, identifier.substring("top_time_".length()));
         }
 
         if (identifier.startsWith("top_")) {
-            return handleTop(identifier.substring("top_".length()));
+            return parseTop(PlaceholderKind.TOP, identifier.substring("top_".length()));
         }
 
         if (identifier.startsWith("rank_")) {
-            return handleRank(player, identifier.substring("rank_".length()));
+            return parseMap(PlaceholderKind.RANK, identifier.substring("rank_".length()));
         }
 
         if (identifier.startsWith("live_")) {
-            return handleLive(player, identifier.substring("live_".length()));
+            return parseMap(PlaceholderKind.LIVE, identifier.substring("live_".length()));
         }
 
-        return "";
+        return ParsedPlaceholder.INVALID;
     }
 
-    private String handleBestTime(Player player, String mapName) {
-        if (player == null || mapName.isEmpty()) {
-            return "-";
+    private ParsedPlaceholder parseMap(PlaceholderKind kind, String mapName) {
+        Map map = mapName.isEmpty() ? null : mapManager.getMap(mapName);
+        return new ParsedPlaceholder(kind, map, 0);
+    }
+
+    private ParsedPlaceholder parseTop(PlaceholderKind kind, String input) {
+        int separator = input.lastIndexOf('_');
+        if (separator <= 0 || separator >= input.length() - 1) {
+            return ParsedPlaceholder.INVALID;
         }
 
-        Map map = mapManager.getMap(mapName);
-        if (map == null) {
+        String mapName = input.substring(0, separator);
+        String positionValue = input.substring(separator + 1);
+        int position;
+        try {
+            position = Integer.parseInt(positionValue);
+        } catch (NumberFormatException exception) {
+            return ParsedPlaceholder.INVALID;
+        }
+
+        if (position <= 0) {
+            return ParsedPlaceholder.INVALID;
+        }
+
+        return new ParsedPlaceholder(kind, mapManager.getMap(mapName), position);
+    }
+
+    private String handleBestTime(Player player, Map map) {
+        if (player == null || map == null) {
             return "-";
         }
 
@@ -106,13 +175,8 @@ public class ZCronoPlaceholderExpansion extends PlaceholderExpansion {
         return TimeFormatter.format(best.getAsLong());
     }
 
-    private String handleRank(Player player, String mapName) {
-        if (player == null || mapName.isEmpty()) {
-            return "-";
-        }
-
-        Map map = mapManager.getMap(mapName);
-        if (map == null) {
+    private String handleRank(Player player, Map map) {
+        if (player == null || map == null) {
             return "-";
         }
 
@@ -120,89 +184,72 @@ public class ZCronoPlaceholderExpansion extends PlaceholderExpansion {
         return rank.isPresent() ? Integer.toString(rank.getAsInt()) : "-";
     }
 
-    private String handleTop(String input) {
-        Optional<TopRequest> request = parseTopRequest(input);
-        if (request.isEmpty()) {
-            return "";
-        }
-
-        Optional<StatsManager.LeaderboardEntry> entry = resolveTopEntry(request.get());
-        if (entry.isEmpty()) {
+    /**
+     * Le posizioni del podio precalcolato vengono lette dallo snapshot senza toccare lo storage;
+     * quelle oltre {@code placeholders.top-size} passano ancora dallo storage.
+     */
+    private String handleTopComponent(ParsedPlaceholder placeholder, TopComponent component) {
+        Map map = placeholder.map();
+        if (map == null) {
             return "-";
         }
 
-        StatsManager.LeaderboardEntry value = entry.get();
-        return value.name() + " " + TimeFormatter.format(value.timeNanos());
-    }
-
-    private String handleTopComponent(String input, TopComponent component) {
-        Optional<TopRequest> request = parseTopRequest(input);
-        if (request.isEmpty()) {
-            return "";
+        int position = placeholder.position();
+        if (position <= statsManager.getSnapshotSize()) {
+            LeaderboardSnapshots.Snapshot snapshot = statsManager.getSnapshot(map.getName());
+            String value = snapshot == null ? null : switch (component) {
+                case PLAYER -> snapshot.name(position);
+                case TIME -> snapshot.time(position);
+                case LINE -> snapshot.line(position);
+            };
+            return value != null ? value : "-";
         }
 
-        Optional<StatsManager.LeaderboardEntry> entry = resolveTopEntry(request.get());
+        Optional<StatsManager.LeaderboardEntry> entry = statsManager.getTopEntry(map.getName(), position);
         if (entry.isEmpty()) {
             return "-";
         }
 
         StatsManager.LeaderboardEntry value = entry.get();
-        if (component == TopComponent.PLAYER) {
-            return value.name();
-        }
-        return TimeFormatter.format(value.timeNanos());
+        return switch (component) {
+            case PLAYER -> value.name();
+            case TIME -> TimeFormatter.format(value.timeNanos());
+            case LINE -> value.name() + " " + TimeFormatter.format(value.timeNanos());
+        };
     }
 
-    private String handleLive(Player player, String mapName) {
-        if (player == null || mapName.isEmpty()) {
+    private String handleLive(Player player, Map map) {
+        if (player == null || map == null) {
             return "-";
         }
 
-        Map map = mapManager.getMap(mapName);
-        if (map == null) {
-            return "-";
-        }
-
-        OptionalLong nanos = runtimeManager.getLiveTime(player.getUniqueId(), map.getName());
-        return nanos.isPresent() ? TimeFormatter.format(nanos.getAsLong()) : "-";
-    }
-
-    private Optional<TopRequest> parseTopRequest(String input) {
-        int separator = input.lastIndexOf('_');
-        if (separator <= 0 || separator >= input.length() - 1) {
-            return Optional.empty();
-        }
-
-        String mapName = input.substring(0, separator);
-        String positionValue = input.substring(separator + 1);
-        int position;
-        try {
-            position = Integer.parseInt(positionValue);
-        } catch (NumberFormatException exception) {
-            return Optional.empty();
-        }
-
-        if (position <= 0) {
-            return Optional.empty();
-        }
-
-        return Optional.of(new TopRequest(mapName, position));
+        String live = runtimeManager.getLiveTimeFormatted(player.getUniqueId(), map.getName());
+        return live != null ? live : "-";
     }
 
-    private Optional<StatsManager.LeaderboardEntry> resolveTopEntry(TopRequest request) {
-        Map map = mapManager.getMap(request.mapName());
-        if (map == null) {
-            return Optional.empty();
-        }
-
-        return statsManager.getTopEntry(map.getName(), request.position());
+    private enum PlaceholderKind {
+        BEST_TIME,
+        TOP,
+        TOP_PLAYER,
+        TOP_TIME,
+        RANK,
+        LIVE,
+        INVALID
     }
 
     private enum TopComponent {
         PLAYER,
-        TIME
+        TIME,
+        LINE
+    }
+
+    /**
+     * Identificatore analizzato: tipo, mappa ({@code null} se non esiste) e posizione per i placeholder top.
+     */
+    private record ParsedPlaceholder(PlaceholderKind kind, Map map, int position) {
+        private static final ParsedPlaceholder INVALID = new ParsedPlaceholder(PlaceholderKind.INVALID, null, 0);
     }
 
-    private record TopRequest(String mapName, int position) {
+    private record ParsedCache(int version, java.util.Map<String, ParsedPlaceholder> entries) {
     }
 }
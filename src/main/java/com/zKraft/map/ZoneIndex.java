@@ -0,0 +1,193 @@
+package com.zKraft.map;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Indice spaziale delle aree di start e end, diviso per mondo e per chunk.
+ * È immutabile: {@link MapManager} ne costruisce uno nuovo a ogni modifica delle mappe.
+ */
+public final class ZoneIndex {
+
+    private static final int CELL_SHIFT = 4;
+    // Griglia più larga (128 blocchi) usata solo per cercare l'area più vicina.
+    private static final int COARSE_SHIFT = 7;
+    private static final double COARSE_SIZE = 1 << COARSE_SHIFT;
+    private static final Zone[] NO_ZONES = new Zone[0];
+
+    public static final ZoneIndex EMPTY = new ZoneIndex(new CellTable[0], new CellTable[0]);
+
+    private final CellTable[] worlds;
+    private final CellTable[] coarseWorlds;
+
+    private ZoneIndex(CellTable[] worlds, CellTable[] coarseWorlds) {
+        this.worlds = worlds;
+        this.coarseWorlds = coarseWorlds;
+    }
+
+    public static ZoneIndex build(Collection<Map> maps) {
+        if (maps == null || maps.isEmpty()) {
+            return EMPTY;
+        }
+
+        java.util.Map<Integer, java.util.Map<Long, List<Zone>>> cellsByWorld = new HashMap<>();
+        java.util.Map<Integer, java.util.Map<Long, List<Zone>>> coarseCellsByWorld = new HashMap<>();
+        int zoneCount = 0;
+        for (Map map : maps) {
+            for (Zone zone : new Zone[]{new Zone(map, map.getStart(), true), new Zone(map, map.getEnd(), false)}) {
+                if (addZone(cellsByWorld, zone, CELL_SHIFT)) {
+                    addZone(coarseCellsByWorld, zone, COARSE_SHIFT);
+                    zoneCount++;
+                }
+            }
+        }
+
+        if (zoneCount == 0) {
+            return EMPTY;
+        }
+
+        return new ZoneIndex(toTables(cellsByWorld), toTables(coarseCellsByWorld));
+    }
+
+    private static CellTable[] toTables(java.util.Map<Integer, java.util.Map<Long, List<Zone>>> cellsByWorld) {
+        CellTable[] tables = new CellTable[Collections.max(cellsByWorld.keySet()) + 1];
+        for (java.util.Map.Entry<Integer, java.util.Map<Long, List<Zone>>> entry : cellsByWorld.entrySet()) {
+            tables[entry.getKey()] = new CellTable(entry.getValue());
+        }
+        return tables;
+    }
+
+    /**
+     * Restituisce le aree registrate nella cella indicata (vedi {@link #toCell(double)}).
+     */
+    public Zone[] zonesInCell(int worldId, int cellX, int cellZ) {
+        if (worldId < 0 || worldId >= worlds.length) {
+            return NO_ZONES;
+        }
+
+        CellTable table = worlds[worldId];
+        if (table == null) {
+            return NO_ZONES;
+        }
+        return table.get(cellKey(cellX, cellZ));
+    }
+
+    /**
+     * Distanza orizzontale dal bordo dell'area più vicina, cercata fino a {@code maxDistance}.
+     * Se non ci sono aree entro quel raggio restituisce {@code maxDistance}.
+     */
+    public double distanceToNearestZone(int worldId, double x, double z, double maxDistance) {
+        if (worldId < 0 || worldId >= coarseWorlds.length || coarseWorlds[worldId] == null) {
+            return maxDistance;
+        }
+
+        CellTable table = coarseWorlds[worldId];
+        int centerX = ((int) Math.floor(x)) >> COARSE_SHIFT;
+        int centerZ = ((int) Math.floor(z)) >> COARSE_SHIFT;
+        int maxRing = (int) (maxDistance / COARSE_SIZE) + 1;
+        double best = maxDistance;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Ogni cella dell'anello dista almeno (ring - 1) celle dalla posizione.
+            if (ring > 1 && (ring - 1) * COARSE_SIZE >= best) {
+                break;
+            }
+
+            for (int offsetX = -ring; offsetX <= ring; offsetX++) {
+                boolean edge = offsetX == -ring || offsetX == ring;
+                int step = edge ? 1 : ring * 2;
+                for (int offsetZ = -ring; offsetZ <= ring; offsetZ += Math.max(1, step)) {
+                    for (Zone zone : table.get(cellKey(centerX + offsetX, centerZ + offsetZ))) {
+                        MapPoint point = zone.point();
+                        double dx = point.getX() - x;
+                        double dz = point.getZ() - z;
+                        double distance = Math.sqrt(dx * dx + dz * dz) - point.getEffectiveRadius();
+                        best = Math.min(best, Math.max(0.0D, distance));
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private static boolean addZone(java.util.Map<Integer, java.util.Map<Long, List<Zone>>> cellsByWorld, Zone zone, int shift) {
+        MapPoint point = zone.point();
+        if (point == null || point.getWorldId() == WorldIds.NONE) {
+            return false;
+        }
+
+        double radius = point.getEffectiveRadius();
+        int minCellX = ((int) Math.floor(point.getX() - radius)) >> shift;
+        int maxCellX = ((int) Math.floor(point.getX() + radius)) >> shift;
+        int minCellZ = ((int) Math.floor(point.getZ() - radius)) >> shift;
+        int maxCellZ = ((int) Math.floor(point.getZ() + radius)) >> shift;
+
+        java.util.Map<Long, List<Zone>> cells = cellsByWorld.computeIfAbsent(point.getWorldId(), unused -> new LinkedHashMap<>());
+        for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+                cells.computeIfAbsent(cellKey(cellX, cellZ), unused -> new ArrayList<>()).add(zone);
+            }
+        }
+        return true;
+    }
+
+    public static int toCell(double coordinate) {
+        return ((int) Math.floor(coordinate)) >> CELL_SHIFT;
+    }
+
+    private static long cellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    public record Zone(Map map, MapPoint point, boolean start) {
+    }
+
+    /**
+     * Tabella a indirizzamento aperto con chiavi long, per evitare il boxing nelle ricerche.
+     */
+    private static final class CellTable {
+        private final long[] keys;
+        private final Zone[][] values;
+        private final int mask;
+
+        CellTable(java.util.Map<Long, List<Zone>> cells) {
+            int capacity = 2;
+            while (capacity < cells.size() * 2) {
+                capacity <<= 1;
+            }
+            keys = new long[capacity];
+            values = new Zone[capacity][];
+            mask = capacity - 1;
+
+            for (java.util.Map.Entry<Long, List<Zone>> entry : cells.entrySet()) {
+                long key = entry.getKey();
+                int index = slot(key);
+                while (values[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                values[index] = entry.getValue().toArray(NO_ZONES);
+            }
+        }
+
+        Zone[] get(long key) {
+            int index = slot(key);
+            Zone[] zones;
+            while ((zones = values[index]) != null) {
+                if (keys[index] == key) {
+                    return zones;
+                }
+                index = (index + 1) & mask;
+            }
+            return NO_ZONES;
+        }
+
+        private int slot(long key) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
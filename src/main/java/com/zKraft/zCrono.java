@@ -61,7 +61,7 @@ public final class zCrono extends JavaPlugin {
         }
 
         if (statsManager != null) {
-            statsManager.save();
+            statsManager.shutdown();
         }
 
         if (placeholderExpansion != null) {
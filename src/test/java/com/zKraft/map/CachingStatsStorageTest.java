@@ -0,0 +1,130 @@
+package com.zKraft.map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CachingStatsStorageTest {
+
+    private static final UUID FIRST = new UUID(0L, 1L);
+    private static final UUID SECOND = new UUID(0L, 2L);
+
+    private final FakeStorage delegate = new FakeStorage();
+    private final CachingStatsStorage storage = new CachingStatsStorage(delegate, 4, 0L);
+
+    @AfterEach
+    void close() {
+        storage.close();
+    }
+
+    @Test
+    void failedReadIsNotCachedAndIsRetried() {
+        delegate.times.put(FIRST, 100L);
+        delegate.times.put(SECOND, 200L);
+        delegate.failReads = true;
+
+        assertThrows(IllegalStateException.class, () -> storage.getEntries("map"));
+        // Un tempo più lento non deve finire in una classifica vuota scambiata per quella vera.
+        storage.recordRun("map", FIRST, "first", 300L);
+
+        delegate.failReads = false;
+        assertEquals(2, storage.getEntries("map").size());
+        assertEquals(OptionalLong.of(100L), storage.getCachedBestTime("map", FIRST));
+        assertEquals(OptionalInt.of(2), storage.getCachedRank("map", SECOND));
+        assertEquals(2, delegate.reads);
+    }
+
+    @Test
+    void writesAfterLoadPatchTheCachedBoard() {
+        delegate.times.put(FIRST, 100L);
+        assertEquals(1, storage.getEntries("map").size());
+
+        storage.recordRun("map", SECOND, "second", 50L);
+        storage.resetPlayer("map", FIRST);
+
+        List<StatsManager.LeaderboardEntry> entries = storage.getEntries("map");
+        assertEquals(1, entries.size());
+        assertEquals(SECOND, entries.get(0).playerId());
+        assertEquals(1, delegate.reads);
+        assertEquals(0, delegate.saves);
+    }
+
+    private static final class FakeStorage implements StatsStorage {
+        private final java.util.Map<UUID, Long> times = new ConcurrentHashMap<>();
+        private volatile boolean failReads;
+        private volatile int reads;
+        private volatile int saves;
+
+        @Override
+        public void load() {
+        }
+
+        @Override
+        public void save() {
+            saves++;
+        }
+
+        @Override
+        public void recordRun(String mapName, UUID playerId, String playerName, long nanos) {
+            times.merge(playerId, nanos, Math::min);
+        }
+
+        @Override
+        public boolean resetPlayer(String mapName, UUID playerId) {
+            return times.remove(playerId) != null;
+        }
+
+        @Override
+        public boolean resetMap(String mapName) {
+            boolean changed = !times.isEmpty();
+            times.clear();
+            return changed;
+        }
+
+        @Override
+        public OptionalLong getBestTime(String mapName, UUID playerId) {
+            Long nanos = times.get(playerId);
+            return nanos != null ? OptionalLong.of(nanos) : OptionalLong.empty();
+        }
+
+        @Override
+        public OptionalInt getRank(String mapName, UUID playerId) {
+            return OptionalInt.empty();
+        }
+
+        @Override
+        public Optional<StatsManager.LeaderboardEntry> getTopEntry(String mapName, int position) {
+            return Optional.empty();
+        }
+
+        @Override
+        public List<StatsManager.LeaderboardEntry> getEntries(String mapName) {
+            reads++;
+            if (failReads) {
+                throw new IllegalStateException("database non raggiungibile");
+            }
+            List<StatsManager.LeaderboardEntry> entries = new ArrayList<>();
+            times.forEach((playerId, nanos) -> entries.add(new StatsManager.LeaderboardEntry(playerId, playerId.toString(), nanos)));
+            return entries;
+        }
+
+        @Override
+        public void saveOngoingRun(String mapName, UUID playerId, String playerName, long nanos) {
+        }
+
+        @Override
+        public List<StatsManager.OngoingRun> getAllOngoingRuns() {
+            return List.of();
+        }
+    }
+}
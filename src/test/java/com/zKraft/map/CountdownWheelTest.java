@@ -0,0 +1,85 @@
+package com.zKraft.map;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CountdownWheelTest {
+
+    private final CountdownWheel<TestTimer> wheel = new CountdownWheel<>();
+
+    @Test
+    void timerFiresAfterItsDelay() {
+        TestTimer timer = new TestTimer();
+        wheel.schedule(timer, 3L);
+        // Oltre un giro della ruota (64 slot).
+        TestTimer late = new TestTimer();
+        wheel.schedule(late, 100L);
+
+        List<Long> fired = new ArrayList<>();
+        List<Long> firedLate = new ArrayList<>();
+        for (long tick = 1L; tick <= 200L; tick++) {
+            long current = tick;
+            wheel.advance(due -> {
+                for (TestTimer expired : due) {
+                    (expired == timer ? fired : firedLate).add(current);
+                }
+            });
+        }
+
+        assertEquals(List.of(3L), fired);
+        assertEquals(List.of(100L), firedLate);
+    }
+
+    @Test
+    void rescheduleKeepsThePeriodEvenWhenLate() {
+        TestTimer timer = new TestTimer();
+        wheel.schedule(timer, 5L);
+
+        List<Long> fired = new ArrayList<>();
+        List<TestTimer> expired = new ArrayList<>();
+        for (long tick = 1L; tick <= 40L; tick++) {
+            // Come su Folia: il timer viene riprogrammato dal thread della regione un tick dopo la scadenza.
+            List<TestTimer> late = new ArrayList<>(expired);
+            expired.clear();
+            long current = tick;
+            wheel.advance(due -> {
+                fired.add(current);
+                expired.addAll(due);
+            });
+            for (TestTimer pending : late) {
+                wheel.reschedule(pending, 10L);
+            }
+        }
+
+        assertEquals(List.of(5L, 15L, 25L, 35L), fired);
+    }
+
+    @Test
+    void cancelledTimerIsDroppedLazily() {
+        TestTimer cancelled = new TestTimer();
+        TestTimer kept = new TestTimer();
+        wheel.schedule(cancelled, 2L);
+        wheel.schedule(kept, 2L);
+        cancelled.cancelled = true;
+
+        List<TestTimer> fired = new ArrayList<>();
+        for (int tick = 0; tick < 130; tick++) {
+            wheel.advance(fired::addAll);
+        }
+
+        assertEquals(List.of(kept), fired);
+    }
+
+    private static final class TestTimer extends CountdownWheel.Timer {
+        private boolean cancelled;
+
+        @Override
+        protected boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.zKraft.map;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LeaderboardTest {
+
+    // Riferimento indipendente dal treap: tempo, poi UUID confrontato byte per byte senza segno.
+    private static final Comparator<Leaderboard.Entry> REFERENCE_ORDER = Comparator
+            .comparingLong(Leaderboard.Entry::nanos)
+            .thenComparing(entry -> toUnsignedBytes(entry.playerId()), LeaderboardTest::compareBytes);
+
+    @Test
+    void tiesAreOrderedByUnsignedUuid() {
+        UUID low = new UUID(0x0000_0000_0000_0001L, 0L);
+        UUID high = new UUID(0x8000_0000_0000_0000L, 0L);
+        UUID highest = new UUID(0xFFFF_FFFF_FFFF_FFFFL, 0L);
+
+        Leaderboard leaderboard = new Leaderboard();
+        leaderboard.put(highest, 100L);
+        leaderboard.put(high, 100L);
+        leaderboard.put(low, 100L);
+
+        // UUID.compareTo metterebbe i due UUID con il bit alto prima di quello basso.
+        assertEquals(OptionalInt.of(1), leaderboard.rankOf(low));
+        assertEquals(OptionalInt.of(2), leaderboard.rankOf(high));
+        assertEquals(OptionalInt.of(3), leaderboard.rankOf(highest));
+        assertEquals(high, leaderboard.entryAt(2).playerId());
+    }
+
+    @Test
+    void matchesSortedListReference() {
+        Random random = new Random(42L);
+        UUID[] players = new UUID[300];
+        for (int index = 0; index < players.length; index++) {
+            players[index] = new UUID(random.nextLong(), random.nextLong());
+        }
+
+        Leaderboard leaderboard = new Leaderboard();
+        java.util.Map<UUID, Long> reference = new HashMap<>();
+        for (int step = 0; step < 5_000; step++) {
+            UUID player = players[random.nextInt(players.length)];
+            if (random.nextInt(5) == 0) {
+                assertEquals(reference.remove(player), leaderboard.remove(player));
+            } else {
+                // Pochi tempi possibili: molti pari merito.
+                long nanos = 1L + random.nextInt(20);
+                reference.put(player, nanos);
+                leaderboard.put(player, nanos);
+            }
+
+            if (step % 250 == 0) {
+                assertMatches(reference, leaderboard);
+            }
+        }
+        assertMatches(reference, leaderboard);
+
+        leaderboard.clear();
+        assertEquals(0, leaderboard.size());
+        assertNull(leaderboard.entryAt(1));
+    }
+
+    @Test
+    void outOfRangePositionsAreEmpty() {
+        Leaderboard leaderboard = new Leaderboard();
+        leaderboard.put(new UUID(0L, 1L), 10L);
+
+        assertNull(leaderboard.entryAt(0));
+        assertNull(leaderboard.entryAt(2));
+        assertEquals(OptionalInt.empty(), leaderboard.rankOf(new UUID(0L, 2L)));
+    }
+
+    private static void assertMatches(java.util.Map<UUID, Long> reference, Leaderboard leaderboard) {
+        List<Leaderboard.Entry> expected = new ArrayList<>();
+        reference.forEach((player, nanos) -> expected.add(new Leaderboard.Entry(player, nanos)));
+        expected.sort(REFERENCE_ORDER);
+
+        assertEquals(expected, leaderboard.entries());
+        assertEquals(expected.size(), leaderboard.size());
+        for (int index = 0; index < expected.size(); index++) {
+            Leaderboard.Entry entry = expected.get(index);
+            assertEquals(OptionalInt.of(index + 1), leaderboard.rankOf(entry.playerId()));
+            assertEquals(entry, leaderboard.entryAt(index + 1));
+        }
+        assertNull(leaderboard.entryAt(expected.size() + 1));
+    }
+
+    private static byte[] toUnsignedBytes(UUID playerId) {
+        byte[] bytes = new byte[16];
+        for (int index = 0; index < 8; index++) {
+            bytes[index] = (byte) (playerId.getMostSignificantBits() >>> (56 - 8 * index));
+            bytes[index + 8] = (byte) (playerId.getLeastSignificantBits() >>> (56 - 8 * index));
+        }
+        return bytes;
+    }
+
+    private static int compareBytes(byte[] first, byte[] second) {
+        for (int index = 0; index < first.length; index++) {
+            int comparison = Integer.compare(first[index] & 0xFF, second[index] & 0xFF);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,63 @@
+package com.zKraft.map;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MapPointTest {
+
+    private static final double EPSILON = 1.0E-9D;
+
+    private MapPoint point;
+    private int worldId;
+
+    @BeforeEach
+    void createPoint() {
+        World world = mock(World.class);
+        when(world.getUID()).thenReturn(UUID.randomUUID());
+        // Cilindro di raggio 1 centrato in (0, 64, 0), alto 1.5 blocchi sopra e sotto.
+        point = new MapPoint(new Location(world, 0.0D, 64.0D, 0.0D), 1.0D);
+        worldId = point.getWorldId();
+    }
+
+    @Test
+    void horizontalSegmentEntersAtTheRadius() {
+        assertEquals(1.0D / 3.0D, point.segmentEntry(worldId, -3.0D, 64.0D, 0.0D, 3.0D, 64.0D, 0.0D), EPSILON);
+        // Partendo dentro l'area l'ingresso è all'inizio del segmento.
+        assertEquals(0.0D, point.segmentEntry(worldId, 0.5D, 64.0D, 0.0D, 3.0D, 64.0D, 0.0D), EPSILON);
+    }
+
+    @Test
+    void tangentSegmentTouchesOnce() {
+        assertEquals(0.5D, point.segmentEntry(worldId, -3.0D, 64.0D, 1.0D, 3.0D, 64.0D, 1.0D), EPSILON);
+        assertTrue(point.segmentEntry(worldId, -3.0D, 64.0D, 1.01D, 3.0D, 64.0D, 1.01D) < 0.0D);
+    }
+
+    @Test
+    void verticalSegmentUsesTheHeightLimits() {
+        // Cade da y=70 a y=60: entra a y=65.5, cioè al 45% del segmento.
+        assertEquals(0.45D, point.segmentEntry(worldId, 0.0D, 70.0D, 0.0D, 0.0D, 60.0D, 0.0D), EPSILON);
+        assertTrue(point.segmentEntry(worldId, 2.0D, 70.0D, 0.0D, 2.0D, 60.0D, 0.0D) < 0.0D);
+        assertTrue(point.segmentEntry(worldId, 0.0D, 70.0D, 0.0D, 0.0D, 66.0D, 0.0D) < 0.0D);
+    }
+
+    @Test
+    void zeroLengthSegmentIsAPointTest() {
+        assertEquals(0.0D, point.segmentEntry(worldId, 0.5D, 64.0D, 0.5D, 0.5D, 64.0D, 0.5D), EPSILON);
+        assertTrue(point.segmentEntry(worldId, 0.9D, 64.0D, 0.9D, 0.9D, 64.0D, 0.9D) < 0.0D);
+        assertTrue(point.segmentEntry(worldId, 0.0D, 66.0D, 0.0D, 0.0D, 66.0D, 0.0D) < 0.0D);
+    }
+
+    @Test
+    void otherWorldNeverMatches() {
+        assertTrue(point.segmentEntry(worldId + 1, -3.0D, 64.0D, 0.0D, 3.0D, 64.0D, 0.0D) < 0.0D);
+    }
+}
@@ -0,0 +1,165 @@
+package com.zKraft.map;
+
+import org.bukkit.plugin.java.JavaPlugin;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MappedStatsStorageTest {
+
+    private static final UUID FIRST = new UUID(0L, 1L);
+    private static final UUID SECOND = new UUID(0L, 2L);
+    private static final UUID THIRD = new UUID(0L, 3L);
+
+    @TempDir
+    Path folder;
+
+    private JavaPlugin plugin;
+
+    @BeforeEach
+    void createPlugin() {
+        plugin = mock(JavaPlugin.class);
+        when(plugin.getDataFolder()).thenReturn(folder.toFile());
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("zCrono-test"));
+    }
+
+    @Test
+    void reopensAfterTornPlayersRecord() throws IOException {
+        MappedStatsStorage storage = open();
+        storage.recordRun("map", FIRST, "First", 200L);
+        storage.save();
+        storage.close();
+
+        // Record di players.dat interrotto a metà: UUID completo, lunghezza del nome e solo due byte del nome.
+        try (FileOutputStream output = new FileOutputStream(folder.resolve("stats/players.dat").toFile(), true)) {
+            output.write(new byte[]{9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 9, 0, 30, 65, 66});
+        }
+
+        storage = open();
+        storage.recordRun("map", SECOND, "Second", 100L);
+        storage.save();
+        storage.close();
+
+        storage = open();
+        List<StatsManager.LeaderboardEntry> entries = storage.getEntries("map");
+        assertEquals(2, entries.size());
+        assertEquals("Second", entries.get(0).name());
+        assertEquals("First", entries.get(1).name());
+        storage.close();
+    }
+
+    @Test
+    void duplicateTimeRecordKeepsBestAndFreesTheOther() throws IOException {
+        MappedStatsStorage storage = open();
+        storage.recordRun("map", FIRST, "First", 200L);
+        storage.close();
+
+        // Copia del record 0 come record 1, con un tempo migliore.
+        try (RandomAccessFile file = new RandomAccessFile(folder.resolve("stats/stats.bin").toFile(), "rw")) {
+            byte[] record = new byte[32];
+            file.seek(32L);
+            file.readFully(record);
+            file.seek(64L);
+            file.write(record);
+            file.seek(64L + 24L);
+            file.writeLong(150L);
+            file.seek(8L);
+            file.writeInt(2);
+        }
+
+        storage = open();
+        assertEquals(OptionalLong.of(150L), storage.getBestTime("map", FIRST));
+        assertEquals(1, storage.getEntries("map").size());
+        // Il record liberato viene riusato senza lasciare il vecchio tempo in classifica.
+        storage.recordRun("map", SECOND, "Second", 300L);
+        storage.close();
+
+        storage = open();
+        assertEquals(OptionalLong.of(150L), storage.getBestTime("map", FIRST));
+        assertEquals(OptionalInt.of(2), storage.getRank("map", SECOND));
+        assertEquals(2, storage.getEntries("map").size());
+        storage.close();
+    }
+
+    @Test
+    void halfWrittenTimeRecordIsIgnoredAndReused() throws IOException {
+        MappedStatsStorage storage = open();
+        storage.recordRun("map", FIRST, "First", 200L);
+        storage.close();
+
+        // Crash dopo i campi del record 1 ma prima del tipo, che resta KIND_FREE.
+        try (RandomAccessFile file = new RandomAccessFile(folder.resolve("stats/stats.bin").toFile(), "rw")) {
+            file.seek(64L);
+            file.writeInt(0);
+            file.writeInt(0);
+            file.writeLong(0L);
+            file.writeLong(2L);
+            file.writeLong(50L);
+            file.seek(8L);
+            file.writeInt(2);
+        }
+
+        storage = open();
+        assertEquals(1, storage.getEntries("map").size());
+        assertEquals(OptionalLong.empty(), storage.getBestTime("map", SECOND));
+        storage.recordRun("map", THIRD, "Third", 300L);
+        storage.close();
+
+        try (RandomAccessFile file = new RandomAccessFile(folder.resolve("stats/stats.bin").toFile(), "r")) {
+            file.seek(8L);
+            assertEquals(2, file.readInt());
+        }
+        storage = open();
+        assertEquals(OptionalInt.of(2), storage.getRank("map", THIRD));
+        storage.close();
+    }
+
+    @Test
+    void readsFromAnotherThreadSeeConsistentRanks() throws InterruptedException {
+        MappedStatsStorage storage = open();
+        storage.recordRun("map", THIRD, "Third", 1L);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try {
+                for (int read = 0; read < 20_000; read++) {
+                    OptionalInt rank = storage.getRank("map", THIRD);
+                    if (rank.isEmpty() || rank.getAsInt() != 1) {
+                        throw new AssertionError("posizione non valida: " + rank);
+                    }
+                }
+            } catch (Throwable throwable) {
+                failure.set(throwable);
+            }
+        });
+        reader.start();
+        for (long player = 10L; player < 5_000L; player++) {
+            storage.recordRun("map", new UUID(0L, player), "p" + player, 1_000_000L - player);
+        }
+        reader.join();
+        storage.close();
+
+        assertNull(failure.get());
+    }
+
+    private MappedStatsStorage open() {
+        MappedStatsStorage storage = new MappedStatsStorage(plugin);
+        storage.load();
+        return storage;
+    }
+}
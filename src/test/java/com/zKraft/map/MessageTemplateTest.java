@@ -0,0 +1,42 @@
+package com.zKraft.map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageTemplateTest {
+
+    @Test
+    void rendersPlaceholdersAndKeepsUnknownOnes() {
+        MessageTemplate template = MessageTemplate.compile("{player} ha finito {map} in {time} {altro}");
+
+        assertEquals("Steve ha finito Spiaggia in 01:02.003 {altro}",
+                template.render(null, "Spiaggia", "Steve", "01:02.003"));
+        assertEquals("{player} ha finito Spiaggia in {time} {altro}", template.render(null, "Spiaggia", null, null));
+        assertTrue(template.isPlayerSpecific());
+        assertFalse(MessageTemplate.compile("Parte tra {seconds}").isPlayerSpecific());
+    }
+
+    @Test
+    void colorCodeSplitByPlaceholderIsReported() {
+        MessageTemplate plain = MessageTemplate.compile("Parte tra &{seconds}");
+        MessageTemplate hex = MessageTemplate.compile("&#ff{map}");
+
+        assertTrue(plain.hasSplitColorCode());
+        assertTrue(hex.hasSplitColorCode());
+        // Il codice resta scritto così com'è, anche quando il valore sembra completarlo.
+        assertEquals("Parte tra &3", plain.render("3", null, null, null));
+        assertEquals("&#ff0000", hex.render(null, "0000", null, null));
+    }
+
+    @Test
+    void completeColorCodesAreNotReported() {
+        assertFalse(MessageTemplate.compile("&a{time}").hasSplitColorCode());
+        assertFalse(MessageTemplate.compile("&#E43A96{time}").hasSplitColorCode());
+        assertFalse(MessageTemplate.compile("{time} &").hasSplitColorCode());
+        assertFalse(MessageTemplate.compile("Fine &").hasSplitColorCode());
+        assertFalse(MessageTemplate.EMPTY.hasSplitColorCode());
+    }
+}
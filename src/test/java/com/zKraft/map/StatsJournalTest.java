@@ -0,0 +1,69 @@
+package com.zKraft.map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StatsJournalTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void replaySkipsTornLastLine() throws IOException {
+        File file = folder.resolve("data.journal").toFile();
+        StatsJournal journal = StatsJournal.create(file, 7L);
+        journal.append("run", "map", "player", "100");
+        journal.append("reset", "map\tcon tab", "player");
+        journal.close();
+
+        // Crash a metà della terza riga: manca il ritorno a capo finale.
+        try (FileOutputStream output = new FileOutputStream(file, true)) {
+            output.write("run\tmap\tplayer\t5".getBytes(StandardCharsets.UTF_8));
+        }
+
+        List<List<String>> operations = new ArrayList<>();
+        long generation = StatsJournal.replay(file, 6L, fields -> operations.add(List.of(fields)));
+
+        assertEquals(7L, generation);
+        assertEquals(List.of(
+                List.of("run", "map", "player", "100"),
+                List.of("reset", "map con tab", "player")), operations);
+    }
+
+    @Test
+    void replayIgnoresIncludedOrMissingJournals() throws IOException {
+        File file = folder.resolve("data.journal").toFile();
+        List<String[]> operations = new ArrayList<>();
+        assertEquals(-1L, StatsJournal.replay(file, 0L, operations::add));
+
+        StatsJournal journal = StatsJournal.create(file, 3L);
+        journal.append("run", "map", "player", "100");
+        journal.close();
+
+        // Generazione già inclusa in data.yml.
+        assertEquals(-1L, StatsJournal.replay(file, 3L, operations::add));
+        assertEquals(0, operations.size());
+    }
+
+    @Test
+    void replayIgnoresTornHeader() throws IOException {
+        File file = folder.resolve("data.journal").toFile();
+        try (FileOutputStream output = new FileOutputStream(file)) {
+            output.write("zcrono-jou".getBytes(StandardCharsets.UTF_8));
+        }
+
+        List<String[]> operations = new ArrayList<>();
+        assertEquals(-1L, StatsJournal.replay(file, 0L, operations::add));
+        assertEquals(0, operations.size());
+    }
+}
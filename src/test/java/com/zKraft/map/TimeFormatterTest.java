@@ -0,0 +1,63 @@
+package com.zKraft.map;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TimeFormatterTest {
+
+    @Test
+    void matchesStringFormat() {
+        long[] samples = {
+                1L, 999_999L, 1_000_000L, 59_999_000_000L, 60_000_000_000L,
+                // 99:59.999, 100 minuti e oltre: i minuti escono dalle due cifre.
+                5_999_999_000_000L, 6_000_000_000_000L, 123_456_789_000_000L, Long.MAX_VALUE
+        };
+        for (long nanos : samples) {
+            assertEquals(reference(nanos), TimeFormatter.format(nanos), "nanos " + nanos);
+        }
+
+        Random random = new Random(7L);
+        for (int index = 0; index < 10_000; index++) {
+            long nanos = random.nextLong(1L, 20_000_000_000_000L);
+            assertEquals(reference(nanos), TimeFormatter.format(nanos), "nanos " + nanos);
+        }
+    }
+
+    @Test
+    void zeroAndNegativeAreZero() {
+        assertEquals("00:00.000", TimeFormatter.format(0L));
+        assertEquals("00:00.000", TimeFormatter.format(-5L));
+        assertEquals("-", TimeFormatter.format((Duration) null));
+    }
+
+    @Test
+    void formatToAppendsToExistingText() {
+        StringBuilder builder = new StringBuilder("Tempo: ");
+        TimeFormatter.formatTo(builder, 6_061_005_000_000L).append(" | ");
+        TimeFormatter.formatTo(builder, 0L);
+
+        assertEquals("Tempo: 101:01.005 | 00:00.000", builder.toString());
+    }
+
+    @Test
+    void cacheReusesTextWithinTheSameMillisecond() {
+        TimeFormatter.Cache cache = new TimeFormatter.Cache();
+        String first = cache.format(1_234_000_001L);
+
+        assertSame(first, cache.format(1_234_999_999L));
+        assertEquals("00:01.235", cache.format(1_235_000_000L));
+    }
+
+    // Implementazione precedente, con String.format.
+    private static String reference(long nanos) {
+        long totalMillis = nanos / 1_000_000L;
+        return String.format(Locale.ROOT, "%02d:%02d.%03d",
+                totalMillis / 60_000L, (totalMillis % 60_000L) / 1_000L, totalMillis % 1_000L);
+    }
+}